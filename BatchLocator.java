@@ -0,0 +1,174 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+//bulk point location for packed query arrays (x0, y0, x1, y1, ...)
+//the queries are put in Hilbert order so that every walk starts at the answer of the
+//query before it and crosses only a few triangles, the sorted order is cut into chunks
+//that the workers of a ForkJoinPool walk on their own; the triangulation is only read,
+//so there are no locks, and the answers land in a primitive array in query order
+public class BatchLocator {
+
+    //queries one worker walks in a row, the first of a chunk starts from a seed
+    private static final int CHUNK = 1 << 12;
+
+    public static class Result {
+        public final int[] ids; //one answer per query, in the order of the queries
+        public final long queries;
+        public final long walkSteps; //triangles walked, plus descent steps for nearest sites
+        public final long nanos; //wall time of the batch, sorting included
+
+        Result(int[] ids, long walkSteps, long nanos) {
+            this.ids = ids;
+            this.queries = ids.length;
+            this.walkSteps = walkSteps;
+            this.nanos = nanos;
+        }
+
+        public double queriesPerSecond() { return nanos == 0 ? 0 : queries * 1e9 / nanos; }
+        public double averageWalkLength() { return queries == 0 ? 0 : (double) walkSteps / queries; }
+    }
+
+    private final DelaunayTriangulation.EdgePair triangulation;
+    private final EdgeStore store;
+    private final NearestNeighbors index; //seeds for the first walk of a chunk and the nearest descent
+    private final ForkJoinPool pool;
+
+    //totals over every batch this locator answered
+    private final LongAdder totalQueries = new LongAdder();
+    private final LongAdder totalWalkSteps = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public BatchLocator(DelaunayTriangulation.EdgePair triangulation) {
+        this(triangulation, ForkJoinPool.commonPool());
+    }
+
+    public BatchLocator(DelaunayTriangulation.EdgePair triangulation, ForkJoinPool pool) {
+        this.triangulation = triangulation;
+        this.store = triangulation.ldo.store();
+        this.index = new NearestNeighbors(triangulation);
+        this.pool = pool;
+    }
+
+    //#region batches
+    //triangle holding every query, boundary included, as the smallest quarter edge index of
+    //the triangle (its vertices are orig of that edge and of the next two around the face),
+    //-1 for queries outside the hull
+    public Result triangles(double[] xy) {
+        return run(xy, false);
+    }
+
+    //vertex id of the nearest site of every query
+    public Result nearest(double[] xy) {
+        return run(xy, true);
+    }
+
+    private Result run(double[] xy, boolean nearest) {
+        if (xy.length % 2 != 0) throw new IllegalArgumentException("Packed queries need an even length, got " + xy.length);
+        long start = System.nanoTime();
+        int n = xy.length / 2;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = xy[2 * i];
+            ys[i] = xy[2 * i + 1];
+        }
+
+        Batch batch = new Batch(xs, ys, PointSort.hilbertOrder(xs, ys), nearest);
+        pool.invoke(new Walks(batch, 0, batch.steps.length));
+        long steps = 0;
+        for (long s : batch.steps) steps += s;
+
+        Result result = new Result(batch.ids, steps, System.nanoTime() - start);
+        totalQueries.add(result.queries);
+        totalWalkSteps.add(result.walkSteps);
+        totalNanos.add(result.nanos);
+        return result;
+    }
+    //#endregion
+
+    //#region metrics
+    public long totalQueries() { return totalQueries.sum(); }
+    public long totalWalkSteps() { return totalWalkSteps.sum(); }
+
+    //over all batches so far, batches that ran at the same time count their time twice
+    public double queriesPerSecond() {
+        long nanos = totalNanos.sum();
+        return nanos == 0 ? 0 : totalQueries.sum() * 1e9 / nanos;
+    }
+
+    public double averageWalkLength() {
+        long queries = totalQueries.sum();
+        return queries == 0 ? 0 : (double) totalWalkSteps.sum() / queries;
+    }
+    //#endregion
+
+    //#region workers
+    //the state of one batch, every chunk writes its own answers and its own step count
+    private class Batch {
+        final double[] xs, ys;
+        final int[] order;
+        final boolean nearest;
+        final int[] ids;
+        final long[] steps;
+
+        Batch(double[] xs, double[] ys, int[] order, boolean nearest) {
+            this.xs = xs;
+            this.ys = ys;
+            this.order = order;
+            this.nearest = nearest;
+            this.ids = new int[xs.length];
+            this.steps = new long[(xs.length + CHUNK - 1) / CHUNK];
+        }
+
+        void walk(int chunk) {
+            long[] walked = new long[1];
+            int hint = -1;
+            int end = Math.min(order.length, (chunk + 1) * CHUNK);
+            for (int k = chunk * CHUNK; k < end; k++) {
+                int i = order[k];
+                double x = xs[i], y = ys[i];
+                if (nearest) {
+                    hint = index.nearestEdge(x, y, hint, walked);
+                    ids[i] = store.orig(hint);
+                } else {
+                    int e = DelaunayTriangulation.locatePoint(triangulation, x, y, hint >= 0 ? hint : index.seed(x, y), walked);
+                    ids[i] = e >= 0 ? triangleId(e) : -1;
+                    hint = e >= 0 ? e : ~e;
+                }
+            }
+            steps[chunk] = walked[0];
+        }
+
+        private int triangleId(int e) {
+            int e1 = store.lNext(e);
+            int e2 = store.lNext(e1);
+            return Math.min(e, Math.min(e1, e2));
+        }
+    }
+
+    //halves the chunk range until one chunk is left
+    private static class Walks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Batch batch;
+        private final int c0, c1;
+
+        Walks(Batch batch, int c0, int c1) {
+            this.batch = batch;
+            this.c0 = c0;
+            this.c1 = c1;
+        }
+
+        @Override
+        protected void compute() {
+            if (c1 - c0 <= 1) {
+                if (c1 > c0) batch.walk(c0);
+                return;
+            }
+            int mid = (c0 + c1) >>> 1;
+            invokeAll(new Walks(batch, c0, mid), new Walks(batch, mid, c1));
+        }
+    }
+    //#endregion
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//runs many EMST jobs in one JVM, so start-up and JIT warm-up are paid once
+//the manifest has one job per line, a point file and its alphas (spaces or commas),
+//blank lines and lines starting with # are skipped, relative paths start at the manifest,
+//lines naming the same file are one job
+//
+//  test/input_n10.txt 3 4
+//  test/input_n1000.txt 10,15
+//
+//every (file, alpha) gets a result file in the format of test/output_n*_a*.txt, named after
+//the input: input_n10.txt with alpha 4 gives output_n10_a4.txt, other.txt gives output_other_a4.txt
+//jobs run on a fixed pool, biggest files first, each job triangulates on its own thread and
+//builds its tree once for all of its alphas; a failed job is reported and the others go on
+public class BatchRunner {
+
+    //same cut off as EMST.main, bigger trees only get their weight
+    private static final int PRINT_EDGES_UP_TO = 10;
+
+    public static class Job {
+        public final Path file;
+        public final List<String> alphas; //as written in the manifest, they end up in the file names
+
+        Job(Path file, List<String> alphas) {
+            this.file = file;
+            this.alphas = alphas;
+        }
+    }
+
+    public static class Outcome {
+        public final Job job;
+        public final int points;
+        public final long nanos;
+        public final List<String> results; //weight or FAIL per alpha, null if the job failed
+        public final Exception error;
+
+        Outcome(Job job, int points, long nanos, List<String> results, Exception error) {
+            this.job = job;
+            this.points = points;
+            this.nanos = nanos;
+            this.results = results;
+            this.error = error;
+        }
+    }
+
+    //#region manifest
+    public static List<Job> readManifest(String manifest) throws IOException {
+        Path path = Paths.get(manifest);
+        Path base = path.toAbsolutePath().getParent();
+        Map<Path, Job> jobs = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] tokens = line.split("[\\s,]+");
+            if (tokens.length < 2) throw new IOException(manifest + ":" + lineNumber + ": a job needs a file and at least one alpha");
+            List<String> alphas = new ArrayList<>();
+            for (int i = 1; i < tokens.length; i++) {
+                try {
+                    Double.parseDouble(tokens[i]);
+                } catch (NumberFormatException e) {
+                    throw new IOException(manifest + ":" + lineNumber + ": bad alpha " + tokens[i]);
+                }
+                alphas.add(tokens[i]);
+            }
+            Path file = base.resolve(tokens[0]).normalize();
+            Job job = jobs.get(file);
+            if (job == null) jobs.put(file, new Job(file, alphas));
+            else job.alphas.addAll(alphas);
+        }
+        return new ArrayList<>(jobs.values());
+    }
+    //#endregion
+
+    //#region running
+    //outcomes in manifest order
+    public static List<Outcome> run(List<Job> jobs, Path outputDir, int threads) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        Integer[] bySize = new Integer[jobs.size()];
+        long[] sizes = new long[jobs.size()];
+        for (int i = 0; i < bySize.length; i++) {
+            bySize[i] = i;
+            sizes[i] = size(jobs.get(i));
+        }
+        Arrays.sort(bySize, (a, b) -> Long.compare(sizes[b], sizes[a]));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Outcome>> futures = new ArrayList<>(Collections.nCopies(jobs.size(), null));
+            for (int i : bySize) {
+                Job job = jobs.get(i);
+                futures.set(i, pool.submit(() -> runJob(job, outputDir)));
+            }
+
+            List<Outcome> outcomes = new ArrayList<>(jobs.size());
+            for (Future<Outcome> f : futures) {
+                try {
+                    outcomes.add(f.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("runJob reports its own failures", e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static long size(Job job) {
+        try {
+            return Files.size(job.file);
+        } catch (IOException e) {
+            return 0; //it fails later with the real message
+        }
+    }
+
+    private static Outcome runJob(Job job, Path outputDir) {
+        long start = System.nanoTime();
+        int points = 0;
+        try {
+            String filename = job.file.toString();
+            DelaunayTriangulation.EdgePair triangulation;
+            if (BinaryPointFile.isBinary(filename)) {
+                BinaryPointFile.Points read = BinaryPointFile.read(filename);
+                points = read.size();
+                triangulation = read.triangulate();
+            } else {
+                double[] xy = PointFileReader.readPacked(filename);
+                points = xy.length / 2;
+                double[] xs = new double[points];
+                double[] ys = new double[points];
+                for (int i = 0; i < points; i++) {
+                    xs[i] = xy[2 * i];
+                    ys[i] = xy[2 * i + 1];
+                }
+                triangulation = DelaunayTriangulation.computeDelaunay(xs, ys, false);
+            }
+            if (triangulation == null) throw new IOException(filename + " has fewer than two distinct points");
+
+            MST.Tree tree = MST.computeTree(triangulation);
+            List<String> results = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            for (String alpha : job.alphas) {
+                sb.setLength(0);
+                if (tree.alphaHolds(Double.parseDouble(alpha))) {
+                    String weight = String.format(Locale.ROOT, "%.2f", tree.totalWeight());
+                    sb.append(weight);
+                    if (points <= PRINT_EDGES_UP_TO) appendEdges(sb, tree);
+                    results.add(weight);
+                } else {
+                    sb.append("FAIL");
+                    results.add("FAIL");
+                }
+                Files.write(outputDir.resolve(outputName(job.file, alpha)), sb.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            return new Outcome(job, points, System.nanoTime() - start, results, null);
+        } catch (Exception e) {
+            return new Outcome(job, points, System.nanoTime() - start, null, e);
+        }
+    }
+
+    static String outputName(Path input, String alpha) {
+        String name = input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        if (name.startsWith("input_")) name = name.substring("input_".length());
+        return "output_" + name + "_a" + alpha + ".txt";
+    }
+    //#endregion
+
+    //#region edges
+    //"(x,y)(x,y)" lines in the order Prim adds the edges starting at vertex 0, every edge
+    //written from the tree side, which is the order of the reference outputs
+    private static void appendEdges(StringBuilder sb, MST.Tree tree) {
+        EdgeStore s = tree.store;
+        int n = s.vertexCount();
+        int m = tree.size();
+
+        //tree adjacency, entry k of vertex v is tree edge adjacent[k] seen from v
+        int[] offsets = new int[n + 1];
+        for (int e : tree.edges) {
+            offsets[s.orig(e) + 1]++;
+            offsets[s.dest(e) + 1]++;
+        }
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+        int[] fill = offsets.clone();
+        int[] adjacent = new int[2 * m];
+        for (int i = 0; i < m; i++) {
+            int e = tree.edges[i];
+            adjacent[fill[s.orig(e)]++] = i;
+            adjacent[fill[s.dest(e)]++] = i;
+        }
+
+        //on a tree Prim only ever looks at tree edges, the cheapest frontier edge is the
+        //one with the smallest Kruskal index since the tree edges are sorted by weight
+        boolean[] reached = new boolean[n];
+        boolean[] frontier = new boolean[m];
+        int start = 0;
+        while (start < n && !s.isVertex(start)) start++;
+        if (start == n) return;
+        reached[start] = true;
+        for (int k = offsets[start]; k < offsets[start + 1]; k++) frontier[adjacent[k]] = true;
+        for (int added = 0; added < m; added++) {
+            int i = 0;
+            while (!frontier[i]) i++; //n <= PRINT_EDGES_UP_TO, a scan is the cheapest queue
+            frontier[i] = false;
+            int e = tree.edges[i];
+            int from = reached[s.orig(e)] ? s.orig(e) : s.dest(e);
+            int to = from == s.orig(e) ? s.dest(e) : s.orig(e);
+            reached[to] = true;
+            for (int k = offsets[to]; k < offsets[to + 1]; k++) {
+                if (adjacent[k] != i) frontier[adjacent[k]] = true;
+            }
+            sb.append('\n');
+            appendPoint(sb, s.x(from), s.y(from));
+            appendPoint(sb, s.x(to), s.y(to));
+        }
+        sb.append('\n');
+    }
+
+    private static void appendPoint(StringBuilder sb, double x, double y) {
+        sb.append('(');
+        appendNumber(sb, x);
+        sb.append(',');
+        appendNumber(sb, y);
+        sb.append(')');
+    }
+
+    private static void appendNumber(StringBuilder sb, double v) {
+        //like ResultWriter, -0.0 keeps its sign through Double.toString
+        if (v == Math.rint(v) && Math.abs(v) < 1e15 && Double.doubleToRawLongBits(v) != Long.MIN_VALUE) sb.append((long) v);
+        else sb.append(v);
+    }
+    //#endregion
+
+    //usage: java BatchRunner <manifest> <output dir> [threads]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java BatchRunner <manifest> <output dir> [threads]");
+            return;
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try {
+            long start = System.nanoTime();
+            List<Outcome> outcomes = run(readManifest(args[0]), Paths.get(args[1]), threads);
+            int failed = 0;
+            for (Outcome o : outcomes) {
+                if (o.error != null) {
+                    failed++;
+                    System.out.println(o.job.file + ": ERROR " + o.error);
+                } else {
+                    System.out.printf(Locale.ROOT, "%s: %d points, %s in %.1f ms%n",
+                        o.job.file, o.points, String.join(" ", o.results), o.nanos / 1e6);
+                }
+            }
+            System.out.printf(Locale.ROOT, "%d jobs, %d failed, %.1f s%n", outcomes.size(), failed, (System.nanoTime() - start) / 1e9);
+            if (failed > 0) System.exit(1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Error running the batch: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
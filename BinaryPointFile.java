@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//compact binary point file, everything little endian
+//
+//  header (64 bytes): magic "DTPF", version, flags, reserved,
+//                     count (long), minX, minY, maxX, maxY
+//  x block: count doubles
+//  y block: count doubles
+//
+//with FLAG_SORTED the points are in triangulation order without duplicates,
+//so computeDelaunay can skip its sort
+public class BinaryPointFile {
+
+    public static final int MAGIC = 0x46505444; //"DTPF" read as little endian int
+    public static final int VERSION = 1;
+    public static final int FLAG_SORTED = 1;
+    public static final int HEADER_SIZE = 64;
+
+    //doubles mapped at once, keeps every mapping well below 2GB
+    private static final int BLOCK_DOUBLES = 1 << 27;
+
+    public static class Points {
+        public final double[] xs, ys;
+        public final boolean sorted;
+        public final double minX, minY, maxX, maxY;
+
+        Points(double[] xs, double[] ys, boolean sorted, double minX, double minY, double maxX, double maxY) {
+            this.xs = xs;
+            this.ys = ys;
+            this.sorted = sorted;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        public int size() { return xs.length; }
+
+        public DelaunayTriangulation.EdgePair triangulate() {
+            return DelaunayTriangulation.computeDelaunay(xs, ys, sorted);
+        }
+    }
+
+    //#region reading
+    public static boolean isBinary(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) return false;
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    //the coordinate blocks are bulk copied from the mapped file into the arrays the triangulation works on
+    public static Points read(String filename) throws IOException {
+        long start = Metrics.start();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer header = header(channel, filename);
+            int flags = header.getInt(8);
+            long count = header.getLong(16);
+            if (count < 0 || count > Integer.MAX_VALUE - 8) throw new IOException("Bad point count " + count);
+            if (channel.size() < HEADER_SIZE + 16 * count) throw new IOException(filename + " is truncated");
+
+            int n = (int) count;
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            readBlock(channel, HEADER_SIZE, xs);
+            readBlock(channel, HEADER_SIZE + 8L * n, ys);
+
+            boolean sorted = (flags & FLAG_SORTED) != 0;
+            if (sorted) checkSorted(xs, ys, filename);
+
+            return new Points(xs, ys, sorted,
+                header.getDouble(24), header.getDouble(32), header.getDouble(40), header.getDouble(48));
+        } finally {
+            Metrics.stop(Metrics.Phase.PARSE, start);
+        }
+    }
+
+    //points files too large for the heap are handed over block by block as x0, y0, x1, y1, ...
+    static void forEachBlock(String filename, PointFileReader.PackedConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long count = header(channel, filename).getLong(16);
+            //bounded first, 16 * count of a corrupt header could wrap past the size check
+            if (count < 0 || count > (Long.MAX_VALUE - HEADER_SIZE) / 16) throw new IOException("Bad point count " + count);
+            if (channel.size() < HEADER_SIZE + 16 * count) throw new IOException(filename + " is truncated");
+
+            int block = (int) Math.min(count, 1 << 20);
+            double[] xs = new double[block];
+            double[] ys = new double[block];
+            double[] xy = new double[2 * block];
+            for (long at = 0; at < count; at += block) {
+                int len = (int) Math.min(block, count - at);
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8 * at, 8L * len)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(xs, 0, len);
+                channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8 * (count + at), 8L * len)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(ys, 0, len);
+                for (int i = 0; i < len; i++) {
+                    xy[2 * i] = xs[i];
+                    xy[2 * i + 1] = ys[i];
+                }
+                consumer.accept(xy, 2 * len);
+            }
+        }
+    }
+
+    //points from..to - 1 of a file, e.g. one slab of a sorted file, the box is the one of the whole file
+    static Points read(String filename, long from, long to) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            MappedByteBuffer header = header(channel, filename);
+            long count = header.getLong(16);
+            if (from < 0 || to < from || to > count || to - from > Integer.MAX_VALUE - 8 || count > (Long.MAX_VALUE - HEADER_SIZE) / 16) {
+                throw new IOException("Bad point range " + from + ".." + to + " of " + count);
+            }
+            if (channel.size() < HEADER_SIZE + 16 * count) throw new IOException(filename + " is truncated");
+
+            int n = (int) (to - from);
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            readBlock(channel, HEADER_SIZE + 8 * from, xs);
+            readBlock(channel, HEADER_SIZE + 8 * (count + from), ys);
+            return new Points(xs, ys, (header.getInt(8) & FLAG_SORTED) != 0,
+                header.getDouble(24), header.getDouble(32), header.getDouble(40), header.getDouble(48));
+        }
+    }
+
+    //the header after the magic and version checks
+    private static MappedByteBuffer header(FileChannel channel, String filename) throws IOException {
+        if (channel.size() < HEADER_SIZE) throw new IOException(filename + " is too short for a point file header");
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) throw new IOException(filename + " is not a binary point file");
+        int version = header.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported point file version " + version);
+        return header;
+    }
+
+    private static void readBlock(FileChannel channel, long offset, double[] target) throws IOException {
+        for (int at = 0; at < target.length; at += BLOCK_DOUBLES) {
+            int len = Math.min(BLOCK_DOUBLES, target.length - at);
+            MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offset + 8L * at, 8L * len);
+            block.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(target, at, len);
+        }
+    }
+
+    //a wrong flag would silently break the triangulation, checking is linear and much cheaper than sorting
+    private static void checkSorted(double[] xs, double[] ys, String filename) throws IOException {
+        for (int i = 1; i < xs.length; i++) {
+            if (DelaunayTriangulation.compare(xs[i - 1], ys[i - 1], xs[i], ys[i]) >= 0) {
+                throw new IOException(filename + " is flagged sorted but point " + i + " is out of order or duplicate");
+            }
+        }
+    }
+    //#endregion
+
+    //#region writing
+    public static void write(String filename, double[] xs, double[] ys, boolean sorted) throws IOException {
+        int n = xs.length;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel, n, sorted, minX, minY, maxX, maxY);
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            writeBlock(channel, buf, xs);
+            writeBlock(channel, buf, ys);
+        }
+    }
+
+    //header at the current position, the x and y blocks of count doubles each have to follow
+    static void writeHeader(FileChannel channel, long count, boolean sorted,
+                            double minX, double minY, double maxX, double maxY) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, sorted ? FLAG_SORTED : 0);
+        header.putLong(16, count);
+        header.putDouble(24, minX);
+        header.putDouble(32, minY);
+        header.putDouble(40, maxX);
+        header.putDouble(48, maxY);
+        writeFully(channel, header);
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer buf, double[] values) throws IOException {
+        int perBuffer = buf.capacity() / 8;
+        for (int at = 0; at < values.length; at += perBuffer) {
+            int len = Math.min(perBuffer, values.length - at);
+            buf.clear();
+            buf.asDoubleBuffer().put(values, at, len);
+            buf.limit(8 * len);
+            writeFully(channel, buf);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    //text to binary, sorting keeps only distinct points in triangulation order
+    public static void convert(String textFile, String binaryFile, boolean sort) throws IOException {
+        double[] xy = PointFileReader.readPacked(textFile);
+        int n = xy.length / 2;
+        double[] xs, ys;
+
+        if (sort) {
+            double[] px = new double[n];
+            double[] py = new double[n];
+            for (int i = 0; i < n; i++) {
+                px[i] = xy[2 * i];
+                py[i] = xy[2 * i + 1];
+            }
+            PointSort.Result unique = PointSort.sortUnique(px, py, true);
+            xs = unique.xs;
+            ys = unique.ys;
+        } else {
+            xs = new double[n];
+            ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = xy[2 * i];
+                ys[i] = xy[2 * i + 1];
+            }
+        }
+        write(binaryFile, xs, ys, sort);
+    }
+    //#endregion
+
+    //usage: java BinaryPointFile input.txt output.bin [--sorted]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java BinaryPointFile <input.txt> <output.bin> [--sorted]");
+            return;
+        }
+        boolean sort = args.length > 2 && args[2].equals("--sorted");
+        try {
+            convert(args[0], args[1], sort);
+            System.out.println("Successfully created '" + args[1] + "'");
+        } catch (IOException e) {
+            System.err.println("An error occurred while converting the file.");
+            e.printStackTrace();
+        }
+    }
+}
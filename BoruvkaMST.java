@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+//parallel alternative to MST.computeMST over the same Delaunay edges
+//every round each component picks its cheapest outgoing edge in parallel,
+//then the picked edges are contracted with a lock free union-find
+//edges are ordered by (length, slot), the order Kruskal sees, so both build the same tree
+public class BoruvkaMST {
+
+    //edges handled by one parallel work item
+    private static final int CHUNK = 1 << 12;
+
+    public static MST.MSTResult computeMST(DelaunayTriangulation.EdgePair hull, double alpha) {
+        EdgeStore store = hull.ldo.store();
+        int n = store.vertexCount();
+
+        //#region edges from the store slots
+        int slots = store.edgeSlots();
+        int m = 0;
+        for (int i = 0; i < slots; i++) {
+            if (store.isLive(i)) m++;
+        }
+        int[] edges = new int[m];
+        int[] from = new int[m];
+        int[] to = new int[m];
+        long[] keys = new long[m];
+        m = 0;
+        for (int i = 0; i < slots; i++) {
+            if (!store.isLive(i)) continue;
+            int e = i << 2;
+            int a = store.orig(e), b = store.dest(e);
+            double dx = store.x(a) - store.x(b);
+            double dy = store.y(a) - store.y(b);
+            edges[m] = e;
+            from[m] = a;
+            to[m] = b;
+            keys[m] = Double.doubleToRawLongBits(dx * dx + dy * dy);
+            m++;
+        }
+        //#endregion
+
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        AtomicIntegerArray best = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) parent.set(v, v);
+        boolean[] inTree = new boolean[m];
+        int edgeCount = m;
+
+        int treeEdges = 0;
+        while (treeEdges < store.liveVertexCount() - 1) {
+            IntStream.range(0, n).parallel().forEach(v -> best.set(v, -1));
+
+            //cheapest outgoing edge of every component, roots are fixed during this phase
+            IntStream.range(0, chunks(edgeCount)).parallel().forEach(c -> {
+                int end = Math.min(edgeCount, (c + 1) * CHUNK);
+                for (int i = c * CHUNK; i < end; i++) {
+                    if (inTree[i]) continue;
+                    int ru = find(parent, from[i]);
+                    int rv = find(parent, to[i]);
+                    if (ru == rv) continue;
+                    offer(best, ru, i, keys);
+                    offer(best, rv, i, keys);
+                }
+            });
+
+            //contract, the picked edges form a forest so only an edge picked by both ends fails
+            int added = IntStream.range(0, n).parallel().map(v -> {
+                int i = best.get(v);
+                if (i < 0 || !union(parent, from[i], to[i])) return 0;
+                inTree[i] = true;
+                return 1;
+            }).sum();
+
+            if (added == 0) break; //the triangulation is connected, only reached on bad input
+            treeEdges += added;
+        }
+
+        //#region result in Kruskal order
+        int[] tree = new int[treeEdges];
+        long[] treeKeys = new long[treeEdges];
+        int at = 0;
+        for (int i = 0; i < m; i++) {
+            if (!inTree[i]) continue;
+            tree[at] = edges[i];
+            treeKeys[at] = keys[i];
+            at++;
+        }
+        PointSort.sortByKey(treeKeys, tree, true);
+
+        List<DelaunayTriangulation.QuarterEdge> mstEdges = new ArrayList<>(treeEdges);
+        double sumWeight = 0;
+        for (int i = 0; i < treeEdges; i++) {
+            double length = Math.sqrt(Double.longBitsToDouble(treeKeys[i]));
+            if (length > alpha) {
+                //same partial answer as computeMST
+                MST.MSTResult result = new MST.MSTResult(mstEdges, sumWeight);
+                result.alphaProperty = false;
+                return result;
+            }
+            mstEdges.add(new DelaunayTriangulation.QuarterEdge(store, tree[i]));
+            sumWeight += length;
+        }
+        return new MST.MSTResult(mstEdges, sumWeight);
+        //#endregion
+    }
+
+    private static int chunks(int count) {
+        return (count + CHUNK - 1) / CHUNK;
+    }
+
+    //keeps the smaller of the current and the offered edge for component c
+    private static void offer(AtomicIntegerArray best, int c, int edge, long[] keys) {
+        while (true) {
+            int current = best.get(c);
+            if (current >= 0 && !lighter(edge, current, keys)) return;
+            if (best.compareAndSet(c, current, edge)) return;
+        }
+    }
+
+    //total order on the edges, ties by position which is slot order
+    private static boolean lighter(int a, int b, long[] keys) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    //#region concurrent union-find
+    //path halving with CAS, a failed CAS only means someone else shortened the path
+    private static int find(AtomicIntegerArray parent, int v) {
+        while (true) {
+            int p = parent.get(v);
+            if (p == v) return v;
+            int gp = parent.get(p);
+            if (p != gp) parent.compareAndSet(v, p, gp);
+            v = gp;
+        }
+    }
+
+    //roots are always linked from the smaller id to the larger one, so concurrent links never form a cycle
+    private static boolean union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int ra = find(parent, a);
+            int rb = find(parent, b);
+            if (ra == rb) return false;
+            if (ra > rb) {
+                int t = ra;
+                ra = rb;
+                rb = t;
+            }
+            if (parent.compareAndSet(ra, ra, rb)) return true;
+        }
+    }
+    //#endregion
+}
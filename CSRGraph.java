@@ -0,0 +1,65 @@
+//compressed sparse row copy of a finished triangulation
+//the neighbours of v are neighbors[offsets[v] .. offsets[v + 1] - 1], graph algorithms
+//that run more than once walk these arrays instead of the quad-edge pointers
+public class CSRGraph {
+    public final int[] offsets;
+    public final int[] neighbors;
+    public final double[] weights; //euclidean length of every entry
+    public final int[] quarterEdges; //quarter edge from v to the neighbour, for results as QuarterEdges
+    public final EdgeStore store;
+
+    private CSRGraph(EdgeStore store, int[] offsets, int[] neighbors, double[] weights, int[] quarterEdges) {
+        this.store = store;
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+        this.weights = weights;
+        this.quarterEdges = quarterEdges;
+    }
+
+    public int vertexCount() { return offsets.length - 1; }
+    public int edgeCount() { return neighbors.length / 2; }
+    public int degree(int v) { return offsets[v + 1] - offsets[v]; }
+
+    public static CSRGraph from(DelaunayTriangulation.EdgePair hull) {
+        return from(hull.ldo.store());
+    }
+
+    //degrees first, then every live edge is written into both rows
+    public static CSRGraph from(EdgeStore store) {
+        int n = store.vertexCount();
+        int slots = store.edgeSlots();
+
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < slots; i++) {
+            if (!store.isLive(i)) continue;
+            offsets[store.orig(i << 2) + 1]++;
+            offsets[store.dest(i << 2) + 1]++;
+        }
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+
+        int[] fill = new int[n];
+        System.arraycopy(offsets, 0, fill, 0, n);
+        int[] neighbors = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        int[] quarterEdges = new int[offsets[n]];
+        for (int i = 0; i < slots; i++) {
+            if (!store.isLive(i)) continue;
+            int e = i << 2;
+            int a = store.orig(e), b = store.dest(e);
+            double dx = store.x(a) - store.x(b);
+            double dy = store.y(a) - store.y(b);
+            double w = Math.sqrt(dx * dx + dy * dy);
+
+            int at = fill[a]++;
+            neighbors[at] = b;
+            weights[at] = w;
+            quarterEdges[at] = e;
+
+            at = fill[b]++;
+            neighbors[at] = a;
+            weights[at] = w;
+            quarterEdges[at] = EdgeStore.sym(e);
+        }
+        return new CSRGraph(store, offsets, neighbors, weights, quarterEdges);
+    }
+}
@@ -1,22 +1,39 @@
-import java.util.*;
+import java.util.Arrays;
 
+//union-find over the vertex ids of an EdgeStore
 class DSU {
-    private Map<DelaunayTriangulation.Point, DelaunayTriangulation.Point> parent = new HashMap<>();
+    private final int[] parent;
+    private final int[] size; //component size, only meaningful for roots
 
-    public DelaunayTriangulation.Point find(DelaunayTriangulation.Point p) {
-        if (!parent.containsKey(p)) parent.put(p, p);
-        if (parent.get(p) == p) return p;
-        parent.put(p, find(parent.get(p))); // Path compression
-        return parent.get(p);
+    public DSU(int n) {
+        parent = new int[n];
+        size = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        Arrays.fill(size, 1);
     }
 
-    public boolean union(DelaunayTriangulation.Point p1, DelaunayTriangulation.Point p2) {
-        DelaunayTriangulation.Point root1 = find(p1);
-        DelaunayTriangulation.Point root2 = find(p2);
-        if (root1 != root2) {
-            parent.put(root1, root2);
-            return true;
+    public int find(int p) {
+        //iterative path halving, no recursion even on long chains
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
         }
-        return false;
+        return p;
     }
-}
\ No newline at end of file
+
+    public boolean union(int p1, int p2) {
+        int root1 = find(p1);
+        int root2 = find(p2);
+        if (root1 == root2) return false;
+
+        //union by size keeps the trees shallow
+        if (size[root1] < size[root2]) {
+            int t = root1;
+            root1 = root2;
+            root2 = t;
+        }
+        parent[root2] = root1;
+        size[root1] += size[root2];
+        return true;
+    }
+}
@@ -81,7 +81,7 @@ public class DelaunayTester {
                 do {
                     faceVisited.add(curr);
                     curr = curr.lNext();
-                } while (curr != e && !faceVisited.contains(curr)); // Safety check for loops
+                } while (!curr.equals(e) && !faceVisited.contains(curr)); // Safety check for loops
             }
         }
 
@@ -233,6 +233,132 @@ public class DelaunayTester {
     }
     //#endregion
 
+    //#region dynamic test
+    //random inserts and removals on a DynamicEMST, seeded so a failure can be replayed
+    //after every step: the live points match, the faces form a triangulation (Euler, every
+    //bounded face a ccw triangle), no edge has its opposite point strictly inside its circle,
+    //and the tree weight equals a from-scratch MST.computeMST on the same points
+    //a small integer grid gives plenty of duplicates, collinear hull runs and cocircular points
+    public static boolean testDynamicEMST(long seed, int initial, int steps) {
+        Random random = new Random(seed);
+        int grid = Math.max(8, (int) Math.sqrt(4.0 * (initial + steps)));
+
+        List<DelaunayTriangulation.Point> live = new ArrayList<>();
+        Set<DelaunayTriangulation.Point> present = new HashSet<>();
+        List<DelaunayTriangulation.Point> start = new ArrayList<>();
+        while (present.size() < Math.max(initial, 3)) {
+            DelaunayTriangulation.Point p = new DelaunayTriangulation.Point(random.nextInt(grid), random.nextInt(grid));
+            start.add(p); //duplicates included, the triangulation drops them
+            if (present.add(p)) live.add(p);
+        }
+        DynamicEMST emst = new DynamicEMST(start);
+        String error = checkDynamic(emst, live);
+        if (error != null) return dynamicFailure(seed, 0, "build", error);
+
+        int inserts = 0, removals = 0;
+        for (int step = 1; step <= steps; step++) {
+            String operation;
+            if (live.size() <= 3 || random.nextBoolean()) {
+                DelaunayTriangulation.Point p = new DelaunayTriangulation.Point(random.nextInt(grid), random.nextInt(grid));
+                operation = "insert " + p;
+                int id = emst.insert(p);
+                if ((id >= 0) == present.contains(p)) return dynamicFailure(seed, step, operation, "returned " + id);
+                if (id >= 0) {
+                    present.add(p);
+                    live.add(p);
+                    inserts++;
+                }
+            } else if (random.nextInt(8) == 0) {
+                DelaunayTriangulation.Point p = new DelaunayTriangulation.Point(grid + random.nextInt(grid), random.nextInt(grid));
+                operation = "remove missing " + p;
+                int id = emst.remove(p);
+                if (id != -1) return dynamicFailure(seed, step, operation, "returned " + id);
+            } else {
+                DelaunayTriangulation.Point p = live.get(random.nextInt(live.size()));
+                operation = "remove " + p;
+                int id = emst.remove(p);
+                if (id < 0) return dynamicFailure(seed, step, operation, "did not find the point");
+                live.set(live.indexOf(p), live.get(live.size() - 1));
+                live.remove(live.size() - 1);
+                present.remove(p);
+                removals++;
+            }
+            error = checkDynamic(emst, live);
+            if (error != null) return dynamicFailure(seed, step, operation, error);
+        }
+
+        System.out.println("✅ DYNAMIC TEST PASSED: seed " + seed + ", " + inserts + " inserts and "
+            + removals + " removals checked step by step, " + live.size() + " points left.");
+        return true;
+    }
+
+    private static boolean dynamicFailure(long seed, int step, String operation, String error) {
+        System.out.println("❌ DYNAMIC TEST FAILED: seed " + seed + ", step " + step + " (" + operation + "): " + error);
+        return false;
+    }
+
+    //null when everything holds, otherwise what broke
+    private static String checkDynamic(DynamicEMST emst, List<DelaunayTriangulation.Point> live) {
+        DelaunayTriangulation.EdgePair pair = emst.triangulation();
+        EdgeStore s = pair.ldo.store();
+        if (s.liveVertexCount() != live.size()) return s.liveVertexCount() + " vertices for " + live.size() + " points";
+        if (!s.isLive(EdgeStore.edgeOf(pair.ldo.index())) || !s.isLive(EdgeStore.edgeOf(pair.rdo.index()))) {
+            return "ldo or rdo is a deleted edge";
+        }
+
+        //faces are the lNext cycles of the primal quarter edges
+        long edges = 0, faces = 0, outer = 0;
+        for (int i = 0; i < s.edgeSlots(); i++) {
+            if (s.isLive(i)) edges++;
+        }
+        boolean[] visited = new boolean[4 * s.edgeSlots()];
+        for (int i = 0; i < s.edgeSlots(); i++) {
+            if (!s.isLive(i)) continue;
+            for (int e = i << 2; e <= ((i << 2) | 2); e += 2) {
+                if (visited[e]) continue;
+                faces++;
+                int length = 0;
+                int f = e;
+                do {
+                    visited[f] = true;
+                    length++;
+                    f = s.lNext(f);
+                } while (f != e && length <= 2 * edges);
+                if (f != e) return "face at " + s.point(s.orig(e)) + " does not close";
+                if (length != 3 || !isCCW(s.point(s.orig(e)), s.point(s.dest(e)), s.point(s.dest(s.lNext(e))))) outer++;
+            }
+        }
+        if (live.size() - edges + faces != 2) return "Euler characteristic " + (live.size() - edges + faces);
+        if (outer != 1) return outer + " faces that are not ccw triangles, expected only the outer face";
+
+        for (int i = 0; i < s.edgeSlots(); i++) {
+            if (!s.isLive(i)) continue;
+            int e = i << 2;
+            DelaunayTriangulation.Point a = s.point(s.orig(e));
+            DelaunayTriangulation.Point b = s.point(s.dest(e));
+            DelaunayTriangulation.Point c = s.point(s.dest(s.lNext(e)));
+            DelaunayTriangulation.Point d = s.point(s.dest(s.lNext(e ^ 2)));
+            if (isCCW(a, b, c) && isCCW(b, a, d) && isStrictlyInsideCircle(a, b, c, d)) {
+                return "edge " + a + " -> " + b + " is not Delaunay, " + d + " is inside (" + a + "," + b + "," + c + ")";
+            }
+        }
+
+        if (emst.edgeCount() != live.size() - 1) return emst.edgeCount() + " tree edges for " + live.size() + " points";
+        MST.MSTResult fresh = MST.computeMST(pair, Double.POSITIVE_INFINITY);
+        if (Math.abs(fresh.totalWeight - emst.totalWeight()) > 1e-9 * Math.max(1, fresh.totalWeight)) {
+            return "tree weight " + emst.totalWeight() + ", from scratch " + fresh.totalWeight;
+        }
+        return null;
+    }
+    //#endregion
+
+    //usage: java DelaunayTester [seed]
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        boolean passed = testDynamicEMST(seed, 60, 2000) & testDynamicEMST(seed + 1, 400, 2000);
+        if (!passed) System.exit(1);
+    }
+
     // --- Helper Predicates for Tester ---
 
     //#region helpers
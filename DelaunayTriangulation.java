@@ -1,12 +1,12 @@
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class DelaunayTriangulation {
 
-    private static final double EPSILON = 1e-12;
+    //below this many points a sub triangulation is not worth a task of its own
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
     public static class Point {
         public double x, y;
         public Point(double x, double y) {
@@ -15,6 +15,16 @@ public class DelaunayTriangulation {
         }
         @Override
         public String toString() { return "(" + x + ", " + y + ")"; }
+        //points are equal by coordinates, the same rule used to drop duplicates
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Point)) return false;
+            Point other = (Point) o;
+            return Double.doubleToLongBits(x) == Double.doubleToLongBits(other.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(other.y);
+        }
+        @Override
+        public int hashCode() { return Double.hashCode(x) * 31 + Double.hashCode(y); }
     }
     public static class EdgePair {
         public QuarterEdge ldo; // Left-most edge of the hull
@@ -25,228 +35,900 @@ public class DelaunayTriangulation {
             this.rdo = rdo;
         }
     }
+    //view on a quarter edge of an EdgeStore, the structure itself is kept in primitive arrays
     public static class QuarterEdge {
         //attributes
-        private QuarterEdge _next; //next quarter edge
-        private QuarterEdge _rot; //rotate to the dual graph edge
-        private Point _orig; //point
-        private Object _data;
+        private final EdgeStore _store;
+        private final int _index; //quarter edge index inside the store
 
-        // Private constructor
-        private QuarterEdge(Point orig, QuarterEdge next, QuarterEdge rot) {
-            _orig = orig;
-            _next = next;
-            _rot = rot;
+        QuarterEdge(EdgeStore store, int index) {
+            _store = store;
+            _index = index;
         }
+
+        public EdgeStore store() { return _store; }
+        public int index() { return _index; }
         
         //#region navigation helper
         //navigation helper
-        public Point getOrig() { return _orig; }
-        public Point getDest() { return sym().getOrig(); }
-        public QuarterEdge rot() { return _rot; }
-        public QuarterEdge sym() { return _rot.rot(); }
-        public QuarterEdge rotInv() { return _rot.sym(); }
+        public Point getOrig() { return _store.point(_store.orig(_index)); }
+        public Point getDest() { return _store.point(_store.dest(_index)); }
+        //vertex ids, the position of the point in the sorted deduplicated input
+        public int origId() { return _store.orig(_index); }
+        public int destId() { return _store.dest(_index); }
+        public QuarterEdge rot() { return view(EdgeStore.rot(_index)); }
+        public QuarterEdge sym() { return view(EdgeStore.sym(_index)); }
+        public QuarterEdge rotInv() { return view(EdgeStore.rotInv(_index)); }
         
-        public QuarterEdge oNext() { return _next; }
-        public QuarterEdge oPrev() { return _rot.oNext().rot(); }
-        public QuarterEdge lNext() { return rotInv().oNext().rot(); }
-        public QuarterEdge lPrev() { return _next.sym(); }
-        public QuarterEdge rNext() { return _rot.oNext().rotInv(); }
-        public QuarterEdge rPrev() { return sym().oNext(); }
+        public QuarterEdge oNext() { return view(_store.oNext(_index)); }
+        public QuarterEdge oPrev() { return view(_store.oPrev(_index)); }
+        public QuarterEdge lNext() { return view(_store.lNext(_index)); }
+        public QuarterEdge lPrev() { return view(_store.lPrev(_index)); }
+        public QuarterEdge rNext() { return view(_store.rNext(_index)); }
+        public QuarterEdge rPrev() { return view(_store.rPrev(_index)); }
 
-        public void setNext(QuarterEdge next) { _next = next; }
-        public void setOrig(Point p) { _orig = p; }
+        private QuarterEdge view(int index) { return new QuarterEdge(_store, index); }
+
+        //two views are the same quarter edge if they point to the same slot
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof QuarterEdge)) return false;
+            QuarterEdge other = (QuarterEdge) o;
+            return other._store == _store && other._index == _index;
+        }
+        @Override
+        public int hashCode() { return _index; }
 
         //#endregion
         // Fundamental topological operators
         public static void splice(QuarterEdge a, QuarterEdge b) {
-            QuarterEdge alpha = a.oNext().rot();
-            QuarterEdge beta  = b.oNext().rot();
-
-            QuarterEdge t1 = b.oNext();
-            QuarterEdge t2 = a.oNext();
-            QuarterEdge t3 = beta.oNext();
-            QuarterEdge t4 = alpha.oNext();
-
-            a.setNext(t1);
-            b.setNext(t2);
-            alpha.setNext(t3);
-            beta.setNext(t4);
-        }
-        public static QuarterEdge makeEdge(Point orig, Point dest) {
-            QuarterEdge q0 = new QuarterEdge(orig, null, null);
-            QuarterEdge e0 = new QuarterEdge(null, null, null);
-            QuarterEdge q1 = new QuarterEdge(dest, null, null);
-            QuarterEdge e1 = new QuarterEdge(null, null, null);
-
-            q0._next = q0; q0._rot = e0;
-            q1._next = q1; q1._rot = e1;
-            e0._next = e1; e0._rot = q1;
-            e1._next = e0; e1._rot = q0;
-
-            return q0;
+            a._store.splice(a._index, b._index);
         }
         //derived operators from splice and makeEdge
         public static QuarterEdge connect(QuarterEdge a, QuarterEdge b) {
-            QuarterEdge e = makeEdge(a.getDest(), b.getOrig());
-            splice(e, a.lNext());
-            splice(e.sym(), b);
-            return e;
+            return a.view(a._store.connect(a._index, b._index));
         }
         public static void delete(QuarterEdge e) {
-            splice(e, e.oPrev());
-            splice(e.sym(), e.sym().oPrev());
+            e._store.delete(e._index);
         }
     }
     //#region geometric predicates
 
     //check the orientation of a triangle
-    private static boolean ccw(Point a, Point b, Point c) {
-        return (b.x - a.x) * (c.y - a.y) - (b.y - a.y) * (c.x - a.x) > EPSILON;
+    //exact sign, see Predicates
+    private static boolean ccw(EdgeStore s, int a, int b, int c) {
+        double[] x = s.xs, y = s.ys;
+        return Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]) > 0;
     }
-    private static boolean rightOf(Point p, QuarterEdge e) {return ccw(p, e.getDest(), e.getOrig());}
-    private static boolean leftOf(Point p, QuarterEdge e){return ccw(p, e.getOrig(), e.getDest());}
+    private static boolean rightOf(EdgeStore s, int p, int e) {return ccw(s, p, s.dest(e), s.orig(e));}
+    private static boolean leftOf(EdgeStore s, int p, int e){return ccw(s, p, s.orig(e), s.dest(e));}
 
     //this compute the 4 x 4 determinant described in the paper
-    private static boolean inCircle(Point a, Point b, Point c, Point d) {
-        double adx = a.x - d.x;
-        double ady = a.y - d.y;
-        double bdx = b.x - d.x;
-        double bdy = b.y - d.y;
-        double cdx = c.x - d.x;
-        double cdy = c.y - d.y;
-
-        double abdet = adx * bdy - bdx * ady;
-        double bcdet = bdx * cdy - cdx * bdy;
-        double cadet = cdx * ady - adx * cdy;
-        
-        double alift = adx * adx + ady * ady;
-        double blift = bdx * bdx + bdy * bdy;
-        double clift = cdx * cdx + cdy * cdy;
+    private static boolean inCircle(EdgeStore s, int a, int b, int c, int d) {
+        double[] x = s.xs, y = s.ys;
+        return Predicates.inCircle(x[a], y[a], x[b], y[b], x[c], y[c], x[d], y[d]) > 0;
+    }
 
-        return (alift * bcdet + blift * cadet + clift * abdet) > EPSILON;
+    //same tests for a point that is not a vertex yet
+    private static double orient(EdgeStore s, double px, double py, int e) {
+        int a = s.orig(e), b = s.dest(e);
+        return Predicates.orient2d(s.xs[a], s.ys[a], s.xs[b], s.ys[b], px, py);
+    }
+    private static boolean rightOf(EdgeStore s, double px, double py, int e) { return orient(s, px, py, e) < 0; }
+
+    //true unless the left face of e is a counterclockwise triangle, the outer face of
+    //the triangulation is the only other kind of face (a clockwise 3-cycle for a triangle hull)
+    private static boolean isOuter(EdgeStore s, int e) {
+        int f = s.lNext(e);
+        int g = s.lNext(f);
+        return s.lNext(g) != e || !ccw(s, s.orig(e), s.dest(e), s.dest(f));
     }
 
     //#endregion
     //#region divide and conquer delaunay triangulation
     public static EdgePair computeDelaunay(List<Point> inputs) {
+        EdgeStore store = prepare(inputs, false);
+        if (store == null) return null;
+
+        //all the blocks of the sorted list
+        long start = Metrics.start();
+        long hull = computeIterative(store, 0, blockCount(store.vertexCount()));
+        Metrics.stop(Metrics.Phase.TRIANGULATION, start);
+        return new EdgePair(new QuarterEdge(store, ldoOf(hull)), new QuarterEdge(store, rdoOf(hull)));
+    }
+
+    public static EdgePair computeDelaunayParallel(List<Point> inputs) {
+        return computeDelaunayParallel(inputs, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    //same triangulation as computeDelaunay, the two halves of every split larger
+    //than threshold are computed as separate fork/join tasks
+    public static EdgePair computeDelaunayParallel(List<Point> inputs, ForkJoinPool pool, int threshold) {
+        EdgeStore store = prepare(inputs, true);
+        if (store == null) return null;
+
+        long start = Metrics.start();
+        long hull = pool.invoke(new ParallelTask(store, 0, blockCount(store.vertexCount()), Math.max(threshold, 3)));
+        Metrics.stop(Metrics.Phase.TRIANGULATION, start);
+        return new EdgePair(new QuarterEdge(store, ldoOf(hull)), new QuarterEdge(store, rdoOf(hull)));
+    }
+
+    //packed coordinates, sorted means already in triangulation order (see compare) without duplicates
+    //e.g. as stored by BinaryPointFile, in that case the arrays are used as they are
+    public static EdgePair computeDelaunay(double[] xs, double[] ys, boolean sorted) {
+        EdgeStore store;
+        if (sorted) {
+            if (xs.length < 2) return null;
+            store = new EdgeStore(xs, ys, null, EdgeStore.capacityFor(xs.length));
+        } else {
+            PointSort.Result unique = PointSort.sortUnique(xs, ys, false);
+            if (unique.xs.length < 2) return null;
+            store = new EdgeStore(unique.xs, unique.ys, null, EdgeStore.capacityFor(unique.xs.length));
+            store.setDuplicatesDropped(unique.duplicates);
+        }
+
+        long start = Metrics.start();
+        long hull = computeIterative(store, 0, blockCount(store.vertexCount()));
+        Metrics.stop(Metrics.Phase.TRIANGULATION, start);
+        return new EdgePair(new QuarterEdge(store, ldoOf(hull)), new QuarterEdge(store, rdoOf(hull)));
+    }
+
+    //order of the vertices, by x and then by y (Double.compare order, like PointSort)
+    static int compare(double x1, double y1, double x2, double y2) {
+        int byX = Double.compare(x1, x2);
+        return byX != 0 ? byX : Double.compare(y1, y2);
+    }
+
+    //sorts the input, drops duplicates and lays the vertices out in a fresh store
+    private static EdgeStore prepare(List<Point> inputs, boolean parallel) {
 
         //no need to triangulate
         if (inputs == null || inputs.size() < 2) return null;
 
+        int size = inputs.size();
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            Point p = inputs.get(i);
+            xs[i] = p.x;
+            ys[i] = p.y;
+        }
+
         //duplicate points need to be removed and sorted first by x and then by y
-        //complexity O(nlong)
-        List<Point> points = new ArrayList<>(inputs);
-        Collections.sort(points, (p1, p2) -> {
-            if (Math.abs(p1.x - p2.x) < EPSILON) return Double.compare(p1.y, p2.y);
-            return Double.compare(p1.x, p2.x);
-        });
+        //complexity O(n), radix sort on the packed coordinates
+        PointSort.Result unique = PointSort.sortUnique(xs, ys, parallel);
+        int n = unique.xs.length;
+        if (n < 2) return null;
+
+        //vertex ids are the positions in the sorted list
+        Point[] vertices = new Point[n];
+        for (int i = 0; i < n; i++) vertices[i] = inputs.get(unique.source[i]);
+
+        EdgeStore store = new EdgeStore(unique.xs, unique.ys, vertices, EdgeStore.capacityFor(n));
+        store.setDuplicatesDropped(unique.duplicates);
+        return store;
+    }
 
-        //Delete duplicates - using set for safety and efficiency
-        Set<String> seen = new HashSet<>();
-        List<DelaunayTriangulation.Point> uniquePoints = new ArrayList<>();
-        for (DelaunayTriangulation.Point p : points) {
-            String key = p.x + "," + p.y;
-            if (!seen.contains(key)) {
-                seen.add(key);
-                uniquePoints.add(p);
-            }
+    //the two hull edges of a sub triangulation are packed in a long, so the recursion allocates nothing
+    static long hull(int ldo, int rdo) { return ((long) ldo << 32) | (rdo & 0xffffffffL); }
+    static int ldoOf(long hull) { return (int) (hull >>> 32); }
+    static int rdoOf(long hull) { return (int) hull; }
+
+    //the sorted vertices are cut into blocks of two points, the last one takes three if n is odd
+    private static int blockCount(int n) { return n / 2; }
+    private static int blockStart(int block) { return 2 * block; }
+    private static int blockEnd(int block, int n) { return block == n / 2 - 1 ? n : 2 * block + 2; } //exclusive
+
+    //apply the divide-and-conquer logic bottom-up, without recursion
+    //the blocks b0..b1 - 1 are triangulated, then adjacent hulls are merged pass by pass
+    //(1,2)(3,4)(5,6)7 -> (1..4)(5..7) -> (1..7), the hull handles stay in one long array
+    private static long computeIterative(EdgeStore s, int b0, int b1) {
+        int n = s.vertexCount();
+        int count = b1 - b0;
+        long[] hulls = new long[count];
+        for (int i = 0; i < count; i++) {
+            hulls[i] = computeBase(s, blockStart(b0 + i), blockEnd(b0 + i, n) - 1);
         }
+        return mergePasses(s, hulls, count);
+    }
+
+    //same as computeIterative for the sorted vertices from..to - 1 (at least two) of a store
+    //that holds other vertices too, the out of core strips are triangulated like this
+    static long computeRange(EdgeStore s, int from, int to) {
+        int count = (to - from) / 2;
+        long[] hulls = new long[count];
+        for (int i = 0; i < count; i++) {
+            int L = from + 2 * i;
+            hulls[i] = computeBase(s, L, i == count - 1 ? to - 1 : L + 1);
+        }
+        return mergePasses(s, hulls, count);
+    }
 
-        if (uniquePoints.size() < 2) return null;
-        //giving to the recursive function 0 and l -1 position of the list
-        return computeRecursive(uniquePoints, 0, uniquePoints.size() - 1);
+    //merges neighbouring hulls pass by pass until one is left
+    static long mergePasses(EdgeStore s, long[] hulls, int count) {
+        while (count > 1) {
+            int merged = 0;
+            for (int i = 0; i + 1 < count; i += 2) {
+                hulls[merged++] = merge(s, hulls[i], hulls[i + 1]);
+            }
+            //an odd hull out waits for the next pass
+            if (count % 2 == 1) hulls[merged++] = hulls[count - 1];
+            count = merged;
+        }
+        return hulls[0];
     }
 
-    //apply the divide-and-conquer logic
-    private static EdgePair computeRecursive(List<Point> S, int L, int R) {
-        //base cases
+    //the pass structure above splits b0..b1 after the largest power of two below the block count,
+    //the parallel version splits at the same place so both give the same merges
+    private static int passSplit(int b0, int b1) {
+        return b0 + Integer.highestOneBit(b1 - b0 - 1);
+    }
 
+    //base cases, L..R are two or three points
+    private static long computeBase(EdgeStore s, int L, int R) {
         // base case (two points)
         if (R - L + 1 == 2) {
-            QuarterEdge e = QuarterEdge.makeEdge(S.get(L), S.get(L + 1));
-            return new EdgePair(e, e.sym());
+            int e = s.makeEdge(L, L + 1);
+            return hull(e, EdgeStore.sym(e));
         }
         
         // other base case (three points)
         if (R - L + 1 == 3) {
-            QuarterEdge a = QuarterEdge.makeEdge(S.get(L), S.get(L + 1));
-            QuarterEdge b = QuarterEdge.makeEdge(S.get(L + 1), S.get(R));
-            QuarterEdge.splice(a.sym(), b);
-
-            if (ccw(S.get(L), S.get(L + 1), S.get(R))) {
-                QuarterEdge c = QuarterEdge.connect(b, a);
-                return new EdgePair(a, b.sym());
-            } else if (ccw(S.get(L), S.get(R), S.get(L + 1))) {
-                QuarterEdge c = QuarterEdge.connect(b, a);
-                return new EdgePair(c.sym(), c);
+            int a = s.makeEdge(L, L + 1);
+            int b = s.makeEdge(L + 1, R);
+            s.splice(EdgeStore.sym(a), b);
+
+            if (ccw(s, L, L + 1, R)) {
+                s.connect(b, a);
+                return hull(a, EdgeStore.sym(b));
+            } else if (ccw(s, L, R, L + 1)) {
+                int c = s.connect(b, a);
+                return hull(EdgeStore.sym(c), c);
             } else { // the points are collinear
-                return new EdgePair(a, b.sym());
+                return hull(a, EdgeStore.sym(b));
             }
         }
+        throw new IllegalArgumentException("A block has two or three points, not " + (R - L + 1));
+    }
 
-        // DIVIDE
-        int split = (L + R) / 2;
-        EdgePair leftRes = computeRecursive(S, L, split);
-        EdgePair rightRes = computeRecursive(S, split + 1, R);
-
-        QuarterEdge ldo = leftRes.rdo;
-        QuarterEdge rdi = rightRes.ldo;
+    //sews two adjacent sub triangulations together along the lower common tangent
+    static long merge(EdgeStore s, long leftRes, long rightRes) {
+        int leftLdo = ldoOf(leftRes);
+        int rightRdo = rdoOf(rightRes);
+        int ldo = rdoOf(leftRes);
+        int rdi = ldoOf(rightRes);
 
         // Compute the lower common tangent
         while (true) {
-            if (leftOf(rdi.getOrig(), ldo)) {
-                ldo = ldo.lNext();
-            } else if (rightOf(ldo.getOrig(), rdi)) {
-                rdi = rdi.rPrev();
+            if (leftOf(s, s.orig(rdi), ldo)) {
+                ldo = s.lNext(ldo);
+            } else if (rightOf(s, s.orig(ldo), rdi)) {
+                rdi = s.rPrev(rdi);
             } else {
                 break;
             }
+            Metrics.count(Metrics.Counter.TANGENT_STEP);
         }
 
-        QuarterEdge basel = QuarterEdge.connect(rdi.sym(), ldo);
+        int basel = s.connect(EdgeStore.sym(rdi), ldo);
         
         // Adjust the hull edges
-        if (ldo.getOrig().equals(leftRes.ldo.getOrig())) leftRes.ldo = basel.sym();
-        if (rdi.getOrig().equals(rightRes.rdo.getOrig())) rightRes.rdo = basel;
+        if (s.orig(ldo) == s.orig(leftLdo)) leftLdo = EdgeStore.sym(basel);
+        if (s.orig(rdi) == s.orig(rightRdo)) rightRdo = basel;
 
         // Merge loop
         while (true) {
             // Locate the first L candidate to be deleted
-            QuarterEdge lCand = basel.sym().oNext();
-            if (rightOf(lCand.getDest(), basel)) {
-                while (inCircle(basel.getDest(), basel.getOrig(), lCand.getDest(), lCand.oNext().getDest())) {
-                    QuarterEdge t = lCand.oNext();
-                    QuarterEdge.delete(lCand);
+            int lCand = s.oNext(EdgeStore.sym(basel));
+            if (rightOf(s, s.dest(lCand), basel)) {
+                while (inCircle(s, s.dest(basel), s.orig(basel), s.dest(lCand), s.dest(s.oNext(lCand)))) {
+                    int t = s.oNext(lCand);
+                    s.delete(lCand);
+                    Metrics.count(Metrics.Counter.CANDIDATE_DELETION);
                     lCand = t;
                 }
             }
 
             // Locate the first R candidate to be deleted
-            QuarterEdge rCand = basel.oPrev();
-            if (rightOf(rCand.getDest(), basel)) {
-                while (inCircle(basel.getDest(), basel.getOrig(), rCand.getDest(), rCand.oPrev().getDest())) {
-                    QuarterEdge t = rCand.oPrev();
-                    QuarterEdge.delete(rCand);
+            int rCand = s.oPrev(basel);
+            if (rightOf(s, s.dest(rCand), basel)) {
+                while (inCircle(s, s.dest(basel), s.orig(basel), s.dest(rCand), s.dest(s.oPrev(rCand)))) {
+                    int t = s.oPrev(rCand);
+                    s.delete(rCand);
+                    Metrics.count(Metrics.Counter.CANDIDATE_DELETION);
                     rCand = t;
                 }
             }
 
             // Terminate if no valid candidates
-            boolean lValid = rightOf(lCand.getDest(), basel);
-            boolean rValid = rightOf(rCand.getDest(), basel);
+            boolean lValid = rightOf(s, s.dest(lCand), basel);
+            boolean rValid = rightOf(s, s.dest(rCand), basel);
 
             if (!lValid && !rValid) break;
 
             // Select the next edge to connect to
-            if (!lValid || (rValid && inCircle(lCand.getDest(), lCand.getOrig(), rCand.getOrig(), rCand.getDest()))) {
-                basel = QuarterEdge.connect(rCand, basel.sym());
+            if (!lValid || (rValid && inCircle(s, s.dest(lCand), s.orig(lCand), s.orig(rCand), s.dest(rCand)))) {
+                basel = s.connect(rCand, EdgeStore.sym(basel));
             } else {
-                basel = QuarterEdge.connect(basel.sym(), lCand.sym());
+                basel = s.connect(EdgeStore.sym(basel), EdgeStore.sym(lCand));
             }
         }
 
-        return new EdgePair(leftRes.ldo, rightRes.rdo);
+        return hull(leftLdo, rightRdo);
+    }
+
+    //fork/join version of computeIterative on the blocks b0..b1 - 1,
+    //the points of the blocks (L..R) use the edge slots 3L..3(R + 1)
+    private static class ParallelTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final EdgeStore s;
+        private final int b0, b1, threshold;
+
+        ParallelTask(EdgeStore s, int b0, int b1, int threshold) {
+            this.s = s;
+            this.b0 = b0;
+            this.b1 = b1;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            int n = s.vertexCount();
+            if (blockEnd(b1 - 1, n) - blockStart(b0) <= threshold || b1 - b0 < 2) return computeIterative(s, b0, b1);
+
+            // DIVIDE, same split as the passes of computeIterative so the result is identical
+            int split = passSplit(b0, b1);
+            int mid = blockStart(split);
+            EdgeStore leftStore = s.fork(EdgeStore.capacityFor(blockStart(b0)), EdgeStore.capacityFor(mid));
+            EdgeStore rightStore = s.fork(EdgeStore.capacityFor(mid), EdgeStore.capacityFor(blockEnd(b1 - 1, n)));
+            ParallelTask left = new ParallelTask(leftStore, b0, split, threshold);
+            ParallelTask right = new ParallelTask(rightStore, split, b1, threshold);
+
+            left.fork();
+            long rightRes = right.compute();
+            long leftRes = left.join();
+
+            s.adopt(leftStore, rightStore);
+            return merge(s, leftRes, rightRes);
+        }
+    }
+    //#endregion
+
+    //#region incremental insertion
+    //adds p to a finished triangulation and returns its vertex id, or -1 if the point is already there
+    //the triangle (or hull edge) holding p is found with a walk, split around the new vertex,
+    //and the Delaunay property is restored with edge flips, which touch O(1) edges on average
+    //ldo and rdo of the pair are kept up to date, new vertices get the next free ids
+    public static int insert(EdgePair triangulation, Point p) {
+        int spoke = insertVertex(triangulation, p, triangulation.ldo.index());
+        return spoke < 0 ? -1 : triangulation.ldo.store().orig(spoke);
+    }
+
+    //seed of insertAll without one, fixed so the same batch gets the same ids on every run
+    public static final long BRIO_SEED = 0x9E3779B97F4A7C15L;
+
+    //deterministic, every call deals its points into rounds the same way, see BRIO_SEED;
+    //give a seed of your own when batches should not share the random order
+    public static int[] insertAll(EdgePair triangulation, List<Point> points) {
+        return insertAll(triangulation, points, BRIO_SEED);
+    }
+
+    //the batch is inserted in BRIO order (see PointSort.brioOrder) and the walk for every
+    //point starts at the previous one, so each walk is a few triangles long; the ids are
+    //returned in the order of the list, -1 for points that are already there
+    public static int[] insertAll(EdgePair triangulation, List<Point> points, long seed) {
+        int n = points.size();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+        int[] order = PointSort.brioOrder(xs, ys, seed);
+
+        int[] ids = new int[n];
+        int start = triangulation.ldo.index();
+        EdgeStore s = triangulation.ldo.store();
+        for (int i : order) {
+            int spoke = insertVertex(triangulation, points.get(i), start);
+            ids[i] = spoke < 0 ? -1 : s.orig(spoke);
+            if (spoke >= 0) start = spoke;
+        }
+        return ids;
+    }
+
+    //returns an edge out of the new vertex, or -1 for a duplicate
+    static int insertVertex(EdgePair triangulation, Point p, int start) {
+        EdgeStore s = triangulation.ldo.store();
+        double x = p.x, y = p.y;
+        int left = triangulation.ldo.origId();
+        int right = triangulation.rdo.origId();
+        int ldo = triangulation.ldo.index();
+
+        int spoke;
+        if (isOuter(s, ldo)) {
+            //no triangle yet, every vertex is on one line
+            spoke = insertCollinear(s, x, y, p, ldo);
+        } else {
+            int e = locate(s, x, y, walkStart(s, start, ldo), null);
+            spoke = e >= 0 ? insertInside(s, x, y, p, e) : insertOutside(s, x, y, p, ~e);
+        }
+        if (spoke < 0) return -1;
+
+        updateHull(s, triangulation, spoke, left, right);
+        return spoke;
+    }
+
+    //a live edge with a triangle on its left next to the hint, ldo when the hint is gone
+    private static int walkStart(EdgeStore s, int hint, int ldo) {
+        if (hint >= 0 && s.isLive(EdgeStore.edgeOf(hint))) {
+            if (!isOuter(s, hint)) return hint;
+            if (!isOuter(s, EdgeStore.sym(hint))) return EdgeStore.sym(hint);
+        }
+        return ldo;
+    }
+
+    //an edge whose closed left triangle holds (x, y), or ~h for a hull edge h that has the
+    //point strictly on its outer side, ~ldo while there are no triangles at all
+    //the walk starts next to the hint, see PointLocator for choosing one
+    static int locatePoint(EdgePair triangulation, double x, double y, int hint) {
+        return locatePoint(triangulation, x, y, hint, null);
+    }
+
+    //same, the triangles the walk visits are added to steps[0] when steps is given
+    static int locatePoint(EdgePair triangulation, double x, double y, int hint, long[] steps) {
+        EdgeStore s = triangulation.ldo.store();
+        int ldo = triangulation.ldo.index();
+        if (isOuter(s, ldo)) return ~ldo;
+        return locate(s, x, y, walkStart(s, hint, ldo), steps);
+    }
+
+    //visibility walk, e has a triangle on its left
+    //returns an edge whose left triangle holds (x, y), boundary included,
+    //or ~h for a hull edge h that has (x, y) strictly on its outer side
+    private static int locate(EdgeStore s, double x, double y, int e, long[] steps) {
+        int visited = 1;
+        int found;
+        //the first triangle is tested on all three sides, after that the side the
+        //walk came in through has the point strictly on its left already
+        if (rightOf(s, x, y, e)) {
+            int f = EdgeStore.sym(e);
+            if (isOuter(s, f)) {
+                if (steps != null) steps[0]++;
+                return ~e;
+            }
+            e = f;
+            visited++;
+        }
+        while (true) {
+            int e1 = s.lNext(e);
+            int next;
+            if (rightOf(s, x, y, e1)) {
+                next = e1;
+            } else {
+                int e2 = s.lNext(e1);
+                if (!rightOf(s, x, y, e2)) {
+                    found = e;
+                    break;
+                }
+                next = e2;
+            }
+
+            int f = EdgeStore.sym(next);
+            if (isOuter(s, f)) {
+                found = ~next;
+                break;
+            }
+            e = f;
+            visited++;
+        }
+        if (steps != null) steps[0] += visited;
+        return found;
+    }
+
+    //the point lies in the closed triangle left of e
+    private static int insertInside(EdgeStore s, double x, double y, Point p, int e) {
+        int e1 = s.lNext(e);
+        int e2 = s.lNext(e1);
+        //== so that 0.0 and -0.0 are one point here, anything else would be a zero length edge
+        for (int v : new int[] { s.orig(e), s.orig(e1), s.orig(e2) }) {
+            if (s.x(v) == x && s.y(v) == y) return -1;
+        }
+
+        //on an edge of the triangle (it can only be one, the point is not a vertex)
+        int on = -1;
+        if (orient(s, x, y, e) == 0) on = e;
+        else if (orient(s, x, y, e1) == 0) on = e1;
+        else if (orient(s, x, y, e2) == 0) on = e2;
+
+        int v = s.addVertex(x, y, p);
+        if (on >= 0 && isOuter(s, EdgeStore.sym(on))) return splitHullEdge(s, v, on);
+
+        int[] link;
+        if (on >= 0) {
+            //two triangles become a quadrilateral around the point
+            e = s.oPrev(on);
+            s.delete(on);
+            int f1 = s.lNext(e), f2 = s.lNext(f1);
+            link = new int[] { e, f1, f2, s.lNext(f2) };
+        } else {
+            link = new int[] { e, e1, e2 };
+        }
+
+        //one spoke to every corner of the face
+        int spoke = s.makeEdge(s.orig(e), v);
+        s.splice(spoke, e);
+        for (int i = 0; i < link.length - 1; i++) {
+            spoke = s.connect(link[i], EdgeStore.sym(spoke));
+        }
+
+        legalize(s, v, link, link.length);
+        return EdgeStore.sym(spoke);
+    }
+
+    //the point lies strictly inside the hull edge e (triangle on the left, outer face on the right)
+    private static int splitHullEdge(EdgeStore s, int v, int e) {
+        int e1 = s.lNext(e);
+        int e2 = s.lNext(e1);
+        int a = s.orig(e);
+        int before = s.oPrev(e); //the other hull edge at a
+        s.delete(e);
+
+        //a-v takes the place of a-b around a, then v is joined to b and to the opposite corner
+        int av = s.makeEdge(a, v);
+        s.splice(av, before);
+        s.connect(av, e1);
+        s.connect(av, e2);
+
+        legalize(s, v, new int[] { e1, e2 }, 2);
+        return EdgeStore.sym(av);
+    }
+
+    //the point is outside the hull and strictly right of the hull edge h, it is joined to every
+    //vertex of the hull chain it can see, the chain is contiguous and contains h
+    private static int insertOutside(EdgeStore s, double x, double y, Point p, int h) {
+        //hull edges run counterclockwise with the triangles on their left
+        int first = h;
+        while (true) {
+            int prev = EdgeStore.sym(s.oPrev(first));
+            if (prev == h || !rightOf(s, x, y, prev)) break;
+            first = prev;
+        }
+        int[] chain = new int[8];
+        int count = 0;
+        for (int e = first; ; ) {
+            if (count == chain.length) chain = Arrays.copyOf(chain, 2 * count);
+            chain[count++] = e;
+            e = s.oNext(EdgeStore.sym(e));
+            if (e == first || !rightOf(s, x, y, e)) break;
+        }
+
+        int v = s.addVertex(x, y, p);
+        int spoke = s.makeEdge(s.orig(first), v);
+        s.splice(spoke, s.oPrev(first));
+        for (int i = 0; i < count; i++) {
+            //the new triangle lies in the outer face, left of the reversed hull edge
+            chain[i] = EdgeStore.sym(chain[i]);
+            spoke = EdgeStore.sym(s.connect(spoke, chain[i]));
+        }
+
+        legalize(s, v, chain, count);
+        return EdgeStore.sym(spoke);
+    }
+
+    //no triangles yet, the vertices form a path along one line (ldo runs from its left end)
+    private static int insertCollinear(EdgeStore s, double x, double y, Point p, int ldo) {
+        double side = orient(s, x, y, ldo);
+        if (side != 0) return insertOutside(s, x, y, p, side < 0 ? ldo : EdgeStore.sym(ldo));
+
+        int e = ldo;
+        if (s.x(s.orig(e)) == x && s.y(s.orig(e)) == y) return -1;
+        if (compare(x, y, s.x(s.orig(e)), s.y(s.orig(e))) < 0) {
+            int v = s.addVertex(x, y, p);
+            int edge = s.makeEdge(v, s.orig(e));
+            s.splice(EdgeStore.sym(edge), e);
+            return edge;
+        }
+
+        //along the path until the edge that holds the point, or past its right end
+        while (true) {
+            int d = s.dest(e);
+            if (s.x(d) == x && s.y(d) == y) return -1;
+            if (compare(x, y, s.x(d), s.y(d)) < 0) break;
+            int onward = s.oNext(EdgeStore.sym(e));
+            if (onward == EdgeStore.sym(e)) {
+                int v = s.addVertex(x, y, p);
+                int edge = s.makeEdge(d, v);
+                s.splice(edge, onward);
+                return EdgeStore.sym(edge);
+            }
+            e = onward;
+        }
+
+        int v = s.addVertex(x, y, p);
+        int u = s.orig(e), w = s.dest(e);
+        int atU = s.oNext(e);
+        int atW = s.oNext(EdgeStore.sym(e));
+        boolean uEnd = atU == e, wEnd = atW == EdgeStore.sym(e);
+        s.delete(e);
+
+        int uv = s.makeEdge(u, v);
+        if (!uEnd) s.splice(uv, atU);
+        int vw = s.makeEdge(v, w);
+        s.splice(vw, EdgeStore.sym(uv));
+        if (!wEnd) s.splice(EdgeStore.sym(vw), atW);
+        return vw;
+    }
+
+    //link edges have the new vertex v on their left, an edge whose right triangle has its
+    //far corner inside the circle through the edge and v is flipped, which exposes two new link edges
+    private static void legalize(EdgeStore s, int v, int[] stack, int top) {
+        while (top > 0) {
+            int e = stack[--top];
+            int a = s.oPrev(e);
+            int d = s.dest(a);
+            //hull edges have no triangle on the right
+            if (!rightOf(s, d, e)) continue;
+            if (!inCircle(s, s.orig(e), s.dest(e), v, d)) continue;
+
+            int dv = s.lNext(a);
+            flip(s, e);
+
+            if (top + 2 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length + 2);
+            stack[top++] = a;
+            stack[top++] = dv;
+        }
+    }
+
+    //replaces e by the other diagonal of the quadrilateral around it, the freed slot is reused
+    //for a left triangle (u, v, c) and a right triangle (v, u, d) the new edge runs from d to c
+    private static int flip(EdgeStore s, int e) {
+        int a = s.oPrev(e);
+        int b = s.oPrev(EdgeStore.sym(e));
+        s.delete(e);
+        return s.connect(a, s.lNext(b));
+    }
+
+    //ldo/rdo may have stopped being hull edges or moved to the new vertex
+    //left and right are the extreme vertices before the insertion
+    private static void updateHull(EdgeStore s, EdgePair t, int spoke, int left, int right) {
+        int v = s.orig(spoke);
+        t.ldo = new QuarterEdge(s, hullEdge(s, edgeFrom(s, t.ldo.index(), left, v, spoke, -1), true));
+        t.rdo = new QuarterEdge(s, hullEdge(s, edgeFrom(s, t.rdo.index(), right, v, spoke, 1), false));
+    }
+
+    //some edge out of the extreme vertex after the insertion of v
+    private static int edgeFrom(EdgeStore s, int old, int extreme, int v, int spoke, int side) {
+        if (Integer.signum(compare(s.x(v), s.y(v), s.x(extreme), s.y(extreme))) == side) return spoke;
+        if (s.isLive(EdgeStore.edgeOf(old)) && s.orig(old) == extreme) return old;
+        //the old handle was flipped away, which only happens to edges next to v
+        int e = spoke;
+        while (s.dest(e) != extreme) e = s.oNext(e);
+        return EdgeStore.sym(e);
+    }
+
+    //turns around the origin of e to the hull edge with the outer face on its right (ldo)
+    //or on its left (rdo)
+    private static int hullEdge(EdgeStore s, int e, boolean outerOnRight) {
+        while (!isOuter(s, outerOnRight ? EdgeStore.sym(e) : e)) e = s.oNext(e);
+        return e;
+    }
+    //#endregion
+
+    //#region removal
+    //removes the vertex at p and returns its id, or -1 if p is not a vertex
+    //the spokes of the vertex are flipped away one ear at a time until it can be cut out,
+    //then the hole is made Delaunay again with flips that stay inside it, so only the
+    //O(degree) triangles around the point change; the id is reused by a later insert
+    public static int remove(EdgePair triangulation, Point p) {
+        int e = locateVertex(triangulation, p.x, p.y, triangulation.ldo.index());
+        return e < 0 ? -1 : removeVertex(triangulation, e);
+    }
+
+    //an edge out of the vertex at (x, y), or -1 if there is none, the walk starts at the hint
+    static int locateVertex(EdgePair triangulation, double x, double y, int hint) {
+        EdgeStore s = triangulation.ldo.store();
+        int ldo = triangulation.ldo.index();
+        if (isOuter(s, ldo)) {
+            //a path, walked from its left end
+            for (int e = ldo; ; e = s.oNext(EdgeStore.sym(e))) {
+                if (s.x(s.orig(e)) == x && s.y(s.orig(e)) == y) return e;
+                if (s.oNext(EdgeStore.sym(e)) == EdgeStore.sym(e)) {
+                    return s.x(s.dest(e)) == x && s.y(s.dest(e)) == y ? EdgeStore.sym(e) : -1;
+                }
+            }
+        }
+
+        int e = locate(s, x, y, walkStart(s, hint, ldo), null);
+        if (e < 0) return -1;
+        for (int i = 0; i < 3; i++, e = s.lNext(e)) {
+            if (s.x(s.orig(e)) == x && s.y(s.orig(e)) == y) return e;
+        }
+        return -1;
+    }
+
+    //removes the origin of e, returns its id
+    static int removeVertex(EdgePair triangulation, int e) {
+        EdgeStore s = triangulation.ldo.store();
+        if (s.liveVertexCount() <= 2) throw new IllegalStateException("A triangulation needs at least two points");
+        int v = s.orig(e);
+
+        if (isOuter(s, triangulation.ldo.index())) {
+            removeFromPath(s, triangulation, e);
+        } else {
+            int left = triangulation.ldo.origId();
+            int right = triangulation.rdo.origId();
+            int survivor = removeFromStar(s, e);
+
+            //only the removal of a hull vertex can touch the hull handles
+            if (survivor >= 0) {
+                int ldo = triangulation.ldo.index();
+                if (left == v || !s.isLive(EdgeStore.edgeOf(ldo)) || s.orig(ldo) != left) {
+                    ldo = extremeHullEdge(s, hullEdge(s, survivor, true), -1);
+                }
+                int rdo = triangulation.rdo.index();
+                if (right == v || !s.isLive(EdgeStore.edgeOf(rdo)) || s.orig(rdo) != right) {
+                    rdo = extremeHullEdge(s, hullEdge(s, survivor, true), 1);
+                }
+                triangulation.ldo = new QuarterEdge(s, hullEdge(s, ldo, true));
+                triangulation.rdo = new QuarterEdge(s, hullEdge(s, rdo, false));
+            }
+        }
+
+        s.removeVertex(v);
+        return v;
+    }
+
+    //cuts v = orig(e) out of the triangulation, returns an edge out of a former neighbour
+    //that is on the hull if v was a hull vertex, -1 otherwise
+    private static int removeFromStar(EdgeStore s, int e) {
+        int v = s.orig(e);
+
+        //spokes counterclockwise, for a hull vertex from the edge after the outer face
+        int first = e;
+        boolean onHull = false;
+        int f = e;
+        do {
+            if (isOuter(s, f)) {
+                onHull = true;
+                first = s.oNext(f);
+                break;
+            }
+            f = s.oNext(f);
+        } while (f != e);
+
+        int[] spokes = new int[8];
+        int k = 0;
+        f = first;
+        do {
+            if (k == spokes.length) spokes = Arrays.copyOf(spokes, 2 * k);
+            spokes[k++] = f;
+            f = s.oNext(f);
+        } while (f != first);
+
+        //the edges between consecutive neighbours bound the hole and are never flipped
+        int[] boundary = new int[onHull ? k - 1 : k];
+        for (int i = 0; i < boundary.length; i++) boundary[i] = s.lNext(spokes[i]);
+        int survivor = onHull ? boundary[0] : -1;
+
+        //a spoke is flipped away when the ear at its far end is convex and v is not inside it,
+        //v keeps 3 spokes (inside the hull) or the ones to its reflex hull neighbours (on the hull)
+        int[] chords = new int[k];
+        int chordCount = 0;
+        int minimum = onHull ? 2 : 3;
+        int i = onHull ? 1 : 0;
+        int idle = 0;
+        while (k > minimum && idle < k) {
+            if (onHull && i > k - 2) {
+                i = 1;
+                continue;
+            }
+            int prev = s.dest(spokes[(i + k - 1) % k]);
+            int tip = s.dest(spokes[i]);
+            int next = s.dest(spokes[(i + 1) % k]);
+            if (ccw(s, prev, tip, next) && !ccw(s, next, prev, v)) {
+                chords[chordCount++] = flip(s, spokes[i]);
+                System.arraycopy(spokes, i + 1, spokes, i, k - i - 1);
+                k--;
+                i = Math.max(i - 1, onHull ? 1 : 0);
+                idle = 0;
+            } else {
+                i = (i + 1) % k;
+                idle++;
+            }
+        }
+        if (!onHull && k > 3) throw new IllegalStateException("No flippable spoke around vertex " + v);
+
+        for (int j = 0; j < k; j++) s.delete(spokes[j]);
+        restoreHole(s, chords, chordCount, boundary);
+        return survivor;
+    }
+
+    //Lawson flips on the new edges of the hole, its boundary edges are already Delaunay
+    //and are never flipped, so this ends with the Delaunay triangulation of the hole
+    private static void restoreHole(EdgeStore s, int[] stack, int top, int[] boundary) {
+        while (top > 0) {
+            int e = stack[--top];
+            if (!s.isLive(EdgeStore.edgeOf(e)) || isBoundary(boundary, e)) continue;
+            int c = s.dest(s.lNext(e));
+            int a = s.oPrev(e);
+            int d = s.dest(a);
+            //new hull edges have only one triangle
+            if (!ccw(s, s.orig(e), s.dest(e), c) || !rightOf(s, d, e)) continue;
+            if (!inCircle(s, s.orig(e), s.dest(e), c, d)) continue;
+
+            int b = s.oPrev(EdgeStore.sym(e));
+            int[] sides = { a, s.lNext(a), b, s.lNext(b) };
+            flip(s, e);
+            if (top + 4 > stack.length) stack = Arrays.copyOf(stack, 2 * stack.length + 4);
+            for (int side : sides) {
+                if (!isBoundary(boundary, side)) stack[top++] = side;
+            }
+        }
+    }
+
+    private static boolean isBoundary(int[] boundary, int e) {
+        for (int b : boundary) {
+            if (EdgeStore.edgeOf(b) == EdgeStore.edgeOf(e)) return true;
+        }
+        return false;
+    }
+
+    //no triangles, the vertices form a path, its neighbours are joined directly
+    //ldo runs from the left end of the path, rdo from the right end
+    private static void removeFromPath(EdgeStore s, EdgePair t, int e) {
+        int v = s.orig(e);
+        if (s.oNext(e) == e) {
+            //an end, the handle moves to the neighbour
+            int onward = s.oNext(EdgeStore.sym(e));
+            boolean leftEnd = compare(s, v, s.dest(e)) < 0;
+            s.delete(e);
+            if (leftEnd) t.ldo = new QuarterEdge(s, onward);
+            else t.rdo = new QuarterEdge(s, onward);
+            return;
+        }
+
+        int in = EdgeStore.sym(s.oNext(e)); //u -> v
+        int u = s.orig(in), w = s.dest(e);
+        int atU = s.oNext(in);
+        int atW = s.oNext(EdgeStore.sym(e));
+        boolean uEnd = atU == in, wEnd = atW == EdgeStore.sym(e);
+        s.delete(in);
+        s.delete(e);
+
+        int uw = s.makeEdge(u, w);
+        if (!uEnd) s.splice(uw, atU);
+        if (!wEnd) s.splice(EdgeStore.sym(uw), atW);
+        if (uEnd) setPathEnd(s, t, uw);
+        if (wEnd) setPathEnd(s, t, EdgeStore.sym(uw));
+    }
+
+    //e runs from an end of the path into it
+    private static void setPathEnd(EdgeStore s, EdgePair t, int e) {
+        if (compare(s, s.orig(e), s.dest(e)) < 0) t.ldo = new QuarterEdge(s, e);
+        else t.rdo = new QuarterEdge(s, e);
+    }
+
+    private static int compare(EdgeStore s, int a, int b) {
+        return compare(s.x(a), s.y(a), s.x(b), s.y(b));
+    }
+
+    //walks along the hull from the hull edge h (outer face on its right) to the leftmost (side -1)
+    //or rightmost (side 1) vertex, the order along a convex hull rises and falls only once
+    private static int extremeHullEdge(EdgeStore s, int h, int side) {
+        while (true) {
+            if (Integer.signum(compare(s, s.dest(h), s.orig(h))) == side) {
+                h = s.oNext(EdgeStore.sym(h));
+                continue;
+            }
+            int prev = EdgeStore.sym(s.oPrev(h));
+            if (Integer.signum(compare(s, s.orig(prev), s.orig(h))) == side) {
+                h = prev;
+                continue;
+            }
+            return h;
+        }
     }
     //#endregion
 
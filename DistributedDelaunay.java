@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Delaunay triangulation spread over worker JVMs on the same host
+//the coordinator sorts the points once and writes them as a sorted binary point file,
+//then starts one worker process per x slab; a worker maps its slab of the file, runs
+//computeDelaunay on it and writes its edges, the order of the edges around every vertex
+//and its hull edges to a file of its own; the coordinator lays the slabs out in one store
+//in slab order and sews them together with the usual merge, pass by pass
+//the workers use the classpath of the coordinator, their heap is set with the jvm options
+public class DistributedDelaunay {
+
+    static final int SLAB_MAGIC = 0x4b575444; //"DTWK" read as little endian int
+    static final int SLAB_VERSION = 1;
+    static final int SLAB_HEADER_SIZE = 32;
+
+    //slab file, little endian
+    //  header (32 bytes): magic, version, edge count (long), ldo, rdo, reserved
+    //  records: a, b (global vertex ids), oNext of a -> b and of b -> a
+    //quarter edges in the file are 4 * record + 0 or 2, the edge slots of the worker are dropped
+
+    public static DelaunayTriangulation.EdgePair triangulate(double[] xs, double[] ys, int workers) throws IOException {
+        return triangulate(xs, ys, workers, new ArrayList<>());
+    }
+
+    //at most one worker per two points, null for fewer than two distinct points like computeDelaunay
+    public static DelaunayTriangulation.EdgePair triangulate(double[] xs, double[] ys, int workers,
+                                                             List<String> jvmOptions) throws IOException {
+        if (workers < 1) throw new IllegalArgumentException("At least one worker is needed, got " + workers);
+        PointSort.Result unique = PointSort.sortUnique(xs, ys, true);
+        int n = unique.xs.length;
+        if (n < 2) return null;
+        int slabs = Math.min(workers, n / 2);
+
+        Path temp = Files.createTempDirectory("delaunay-slabs");
+        List<Process> processes = new ArrayList<>();
+        try {
+            Path points = temp.resolve("points.bin");
+            BinaryPointFile.write(points.toString(), unique.xs, unique.ys, true);
+
+            for (int w = 0; w < slabs; w++) {
+                processes.add(start(jvmOptions, points, slabStart(w, slabs, n), slabStart(w + 1, slabs, n), slabFile(temp, w)));
+            }
+            for (int w = 0; w < slabs; w++) {
+                int exit = waitFor(processes.get(w));
+                if (exit != 0) throw new IOException("Worker " + w + " failed with exit code " + exit);
+            }
+
+            EdgeStore store = new EdgeStore(unique.xs, unique.ys, null, EdgeStore.capacityFor(n));
+            store.setDuplicatesDropped(unique.duplicates);
+            long[] hulls = new long[slabs];
+            for (int w = 0; w < slabs; w++) {
+                hulls[w] = load(store, slabFile(temp, w), slabStart(w, slabs, n), slabStart(w + 1, slabs, n));
+            }
+            long hull = DelaunayTriangulation.mergePasses(store, hulls, slabs);
+            return new DelaunayTriangulation.EdgePair(
+                new DelaunayTriangulation.QuarterEdge(store, DelaunayTriangulation.ldoOf(hull)),
+                new DelaunayTriangulation.QuarterEdge(store, DelaunayTriangulation.rdoOf(hull)));
+        } finally {
+            for (Process p : processes) {
+                if (p.isAlive()) p.destroyForcibly();
+            }
+            delete(temp);
+        }
+    }
+
+    //#region coordinator
+    private static int slabStart(int slab, int slabs, int n) {
+        return (int) ((long) slab * n / slabs);
+    }
+
+    private static Path slabFile(Path dir, int slab) {
+        return dir.resolve("slab-" + slab + ".bin");
+    }
+
+    private static Process start(List<String> jvmOptions, Path points, int from, int to, Path out) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DistributedDelaunay.class.getName());
+        command.add("--worker");
+        command.add(points.toString());
+        command.add(Integer.toString(from));
+        command.add(Integer.toString(to));
+        command.add(out.toString());
+        return new ProcessBuilder(command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+    }
+
+    private static int waitFor(Process process) throws IOException {
+        try {
+            return process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a worker", e);
+        }
+    }
+
+    //copies the edges of a slab into the store and rebuilds the ring of every slab vertex in
+    //the order of the worker, splicing each quarter edge after the one before it
+    private static long load(EdgeStore store, Path file, int from, int to) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < SLAB_HEADER_SIZE) throw new IOException(file + " is too short for a slab header");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != SLAB_MAGIC) throw new IOException(file + " is not a slab file");
+            int version = map.getInt(4);
+            if (version != SLAB_VERSION) throw new IOException("Unsupported slab file version " + version);
+            long count = map.getLong(8);
+            if (count < 0 || count > EdgeStore.capacityFor(to - from) || channel.size() < SLAB_HEADER_SIZE + 16 * count) {
+                throw new IOException(file + " has a bad edge count " + count);
+            }
+            int m = (int) count;
+            int ldo = map.getInt(16), rdo = map.getInt(20);
+
+            IntBuffer records = map.position(SLAB_HEADER_SIZE).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            int[] quarter = new int[m];
+            int[] first = new int[to - from];
+            Arrays.fill(first, -1);
+            for (int k = 0; k < m; k++) {
+                int a = records.get(4 * k), b = records.get(4 * k + 1);
+                quarter[k] = store.makeEdge(a, b);
+                if (first[a - from] < 0) first[a - from] = k << 2;
+                if (first[b - from] < 0) first[b - from] = (k << 2) | 2;
+            }
+
+            for (int v = 0; v < first.length; v++) {
+                int start = first[v];
+                if (start < 0) continue;
+                int e = start;
+                while (true) {
+                    int next = records.get(4 * (e >>> 2) + 2 + ((e & 2) >>> 1));
+                    if (next == start) break;
+                    store.splice(quarter[e >>> 2] | (e & 2), quarter[next >>> 2] | (next & 2));
+                    e = next;
+                }
+            }
+            return DelaunayTriangulation.hull(quarter[ldo >>> 2] | (ldo & 2), quarter[rdo >>> 2] | (rdo & 2));
+        }
+    }
+    //#endregion
+
+    //#region worker
+    //triangulates the points from..to - 1 of a sorted point file and writes the slab file
+    static void work(String points, int from, int to, String out) throws IOException {
+        BinaryPointFile.Points slab = BinaryPointFile.read(points, from, to);
+        DelaunayTriangulation.EdgePair result = DelaunayTriangulation.computeDelaunay(slab.xs, slab.ys, true);
+        EdgeStore s = result.ldo.store();
+
+        //records in slot order, the free slots left by the merges are skipped
+        int[] record = new int[s.edgeSlots()];
+        int m = 0;
+        for (int i = 0; i < s.edgeSlots(); i++) record[i] = s.isLive(i) ? m++ : -1;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(out),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(SLAB_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, SLAB_MAGIC);
+            header.putInt(4, SLAB_VERSION);
+            header.putLong(8, m);
+            header.putInt(16, renumber(record, result.ldo.index()));
+            header.putInt(20, renumber(record, result.rdo.index()));
+            writeFully(channel, header);
+
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < s.edgeSlots(); i++) {
+                if (record[i] < 0) continue;
+                if (buf.remaining() < 16) {
+                    buf.flip();
+                    writeFully(channel, buf);
+                    buf.clear();
+                }
+                int e = i << 2;
+                buf.putInt(from + s.orig(e));
+                buf.putInt(from + s.dest(e));
+                buf.putInt(renumber(record, s.oNext(e)));
+                buf.putInt(renumber(record, s.oNext(e ^ 2)));
+            }
+            buf.flip();
+            writeFully(channel, buf);
+        }
+    }
+
+    private static int renumber(int[] record, int e) {
+        return (record[EdgeStore.edgeOf(e)] << 2) | (e & 2);
+    }
+    //#endregion
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    //usage: java DistributedDelaunay <file> <workers> <alpha...> [-- jvm options for the workers]
+    //prints the same lines as EMST for every alpha
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--worker")) {
+            try {
+                work(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), args[4]);
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+        if (args.length < 3) {
+            System.err.println("Usage: java DistributedDelaunay <file> <workers> <alpha...> [-- jvm options for the workers]");
+            return;
+        }
+
+        int split = Arrays.asList(args).indexOf("--");
+        List<String> alphas = Arrays.asList(args).subList(2, split < 0 ? args.length : split);
+        List<String> jvmOptions = split < 0 ? new ArrayList<>() : Arrays.asList(args).subList(split + 1, args.length);
+        try {
+            double[] xs, ys;
+            if (BinaryPointFile.isBinary(args[0])) {
+                BinaryPointFile.Points points = BinaryPointFile.read(args[0]);
+                xs = points.xs;
+                ys = points.ys;
+            } else {
+                double[] xy = PointFileReader.readPacked(args[0]);
+                xs = new double[xy.length / 2];
+                ys = new double[xy.length / 2];
+                for (int i = 0; i < xs.length; i++) {
+                    xs[i] = xy[2 * i];
+                    ys[i] = xy[2 * i + 1];
+                }
+            }
+
+            DelaunayTriangulation.EdgePair result = triangulate(xs, ys, Integer.parseInt(args[1]), jvmOptions);
+            MST.Tree tree = MST.computeTree(result);
+            for (String alpha : alphas) {
+                System.out.println(tree.alphaHolds(Double.parseDouble(alpha)) ? Double.toString(tree.totalWeight()) : "FAIL");
+            }
+        } catch (Exception e) {
+            System.err.println("Error processing EMST: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,508 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+//euclidean minimum spanning tree of a point set that changes one point at a time
+//the Delaunay triangulation is updated in place and only the tree edges near the
+//changed point are looked at, nothing is sorted again:
+//- insert: every Delaunay edge at the new point replaces the longest edge on the tree
+//  path between its ends when it is shorter, path maxima come from a link-cut tree
+//- remove: the tree edges of the point are cut and the pieces are joined again with the
+//  shortest Delaunay edges between them, found by scanning all pieces but the largest
+//the tree owns the triangulation it is built on, change the points through this class only
+public class DynamicEMST {
+
+    //a euclidean MST never has two edges at a vertex closer than 60 degrees
+    private static final int MAX_DEGREE = 6;
+
+    private final DelaunayTriangulation.EdgePair triangulation;
+    private final EdgeStore store;
+    private final LinkCutTree tree = new LinkCutTree();
+
+    //tree neighbours of v in adjacent[6v .. 6v + 5], -1 for a free slot, adjacentEdge holds the edge id
+    private int[] adjacent = new int[0];
+    private int[] adjacentEdge = new int[0];
+    //ends of tree edge k, its link-cut node is 2k + 1 and vertex v is node 2v
+    private int[] edgeFrom = new int[0];
+    private int[] edgeTo = new int[0];
+    private int[] freeEdges = new int[0];
+    private int freeEdgeCount, edgeIds;
+
+    private int edgeCount;
+    private double totalWeight;
+    private final TreeMap<Double, Integer> lengths = new TreeMap<>(); //multiset of the tree edge lengths
+
+    //removal scratch, v was reached by the current search if stamp[v] == epoch, label[v] is its piece
+    private int[] stamp = new int[0];
+    private int[] label = new int[0];
+    private int epoch;
+
+    private int hint; //a live quarter edge near the last change, where the next walk starts
+
+    public DynamicEMST(List<DelaunayTriangulation.Point> points) {
+        this(DelaunayTriangulation.computeDelaunay(points));
+    }
+
+    //the initial tree is the Kruskal one
+    public DynamicEMST(DelaunayTriangulation.EdgePair triangulation) {
+        if (triangulation == null) throw new IllegalArgumentException("A dynamic EMST needs at least two distinct points");
+        this.triangulation = triangulation;
+        this.store = triangulation.ldo.store();
+        ensureCapacity(store.vertexCount());
+
+        MST.Tree initial = MST.computeTree(triangulation);
+        for (int i = 0; i < initial.size(); i++) {
+            int e = initial.edges[i];
+            addEdge(store.orig(e), store.dest(e), initial.weights[i]);
+        }
+        hint = triangulation.ldo.index();
+    }
+
+    //#region queries
+    public DelaunayTriangulation.EdgePair triangulation() { return triangulation; }
+    public int vertexCount() { return store.liveVertexCount(); }
+    public int edgeCount() { return edgeCount; }
+
+    //kept as a running sum, after many changes it can differ from a fresh sum in the last bits
+    public double totalWeight() { return totalWeight; }
+
+    public double longestEdge() { return lengths.isEmpty() ? 0 : lengths.lastKey(); }
+
+    public boolean alphaHolds(double alpha) {
+        return longestEdge() <= alpha;
+    }
+
+    //vertex ids of the tree edges as pairs, coordinates through triangulation().ldo.store()
+    public int[] edges() {
+        int[] pairs = new int[2 * edgeCount];
+        int at = 0;
+        for (int v = 0; v < store.vertexCount(); v++) {
+            for (int i = MAX_DEGREE * v; i < MAX_DEGREE * (v + 1); i++) {
+                if (adjacent[i] > v) {
+                    pairs[at++] = v;
+                    pairs[at++] = adjacent[i];
+                }
+            }
+        }
+        return pairs;
+    }
+    //#endregion
+
+    //#region changes
+    //adds p and returns its vertex id, -1 if it is already there
+    public int insert(DelaunayTriangulation.Point p) {
+        int spoke = DelaunayTriangulation.insertVertex(triangulation, p, hint);
+        if (spoke < 0) return -1;
+        hint = spoke;
+        int v = store.orig(spoke);
+        ensureCapacity(v + 1);
+        tree.reset(2 * v, Double.NEGATIVE_INFINITY);
+
+        //the new tree is a spanning tree of the old one plus the edges at v, any order of them works
+        int e = spoke;
+        do {
+            int u = store.dest(e);
+            double w = length(v, u);
+            if (!tree.connected(2 * v, 2 * u)) {
+                addEdge(v, u, w);
+            } else {
+                int longest = tree.pathMax(2 * v, 2 * u);
+                if (tree.value[longest] > w) {
+                    removeEdge(longest >>> 1);
+                    addEdge(v, u, w);
+                }
+            }
+            e = store.oNext(e);
+        } while (e != spoke);
+        return v;
+    }
+
+    //removes the point at p and returns its vertex id, -1 if there is none
+    public int remove(DelaunayTriangulation.Point p) {
+        int e = DelaunayTriangulation.locateVertex(triangulation, p.x, p.y, hint);
+        if (e < 0) return -1;
+        if (store.liveVertexCount() <= 2) throw new IllegalStateException("A triangulation needs at least two points");
+        int v = store.orig(e);
+
+        //the tree neighbours become the roots of the pieces, each with a Delaunay edge out of it
+        //that survives the removal, the edge after v -> y around its left face is never touched
+        int[] roots = new int[MAX_DEGREE];
+        int[] rootEdges = new int[MAX_DEGREE];
+        int[] cut = new int[MAX_DEGREE];
+        int pieces = 0;
+        for (int i = MAX_DEGREE * v; i < MAX_DEGREE * (v + 1); i++) {
+            int y = adjacent[i];
+            if (y < 0) continue;
+            roots[pieces] = y;
+            rootEdges[pieces] = edgeAfter(e, y);
+            cut[pieces] = adjacentEdge[i];
+            pieces++;
+        }
+        for (int i = 0; i < pieces; i++) removeEdge(cut[i]);
+
+        DelaunayTriangulation.removeVertex(triangulation, e);
+        hint = triangulation.ldo.index();
+        if (pieces > 1) reconnect(roots, rootEdges, pieces);
+        return v;
+    }
+
+    //an edge out of y after v -> y around its left face, -1 if there is none that survives v
+    private int edgeAfter(int spoke, int y) {
+        int v = store.orig(spoke);
+        int e = spoke;
+        do {
+            if (store.dest(e) == y) {
+                int next = store.lNext(e);
+                return store.dest(next) == v ? -1 : next;
+            }
+            e = store.oNext(e);
+        } while (e != spoke);
+        return -1; //a tree edge that is not a Delaunay edge, only possible with ties
+    }
+
+    //joins the pieces of the tree with the shortest Delaunay edges between them
+    //the pieces are searched in turns until all but one are finished, so the work is
+    //proportional to the smaller pieces; every edge between pieces has an end in one of them
+    private void reconnect(int[] roots, int[] rootEdges, int pieces) {
+        epoch++;
+        int[][] members = new int[pieces][];
+        int[][] memberEdges = new int[pieces][];
+        int[] size = new int[pieces];
+        int[] head = new int[pieces];
+        boolean[] finished = new boolean[pieces];
+        for (int c = 0; c < pieces; c++) {
+            members[c] = new int[16];
+            memberEdges[c] = new int[16];
+            members[c][0] = roots[c];
+            memberEdges[c][0] = rootEdges[c];
+            size[c] = 1;
+            stamp[roots[c]] = epoch;
+            label[roots[c]] = c;
+        }
+
+        //#region breadth first over the tree, one vertex per piece and turn
+        int open = pieces;
+        while (open > 1) {
+            for (int c = 0; c < pieces && open > 1; c++) {
+                if (finished[c]) continue;
+                if (head[c] == size[c]) {
+                    finished[c] = true;
+                    open--;
+                    continue;
+                }
+                int h = head[c]++;
+                int x = members[c][h];
+                int ex = memberEdges[c][h];
+                if (ex < 0 || !store.isLive(EdgeStore.edgeOf(ex)) || store.orig(ex) != x) {
+                    ex = DelaunayTriangulation.locateVertex(triangulation, store.x(x), store.y(x), hint);
+                    memberEdges[c][h] = ex;
+                }
+                hint = ex;
+
+                for (int i = MAX_DEGREE * x; i < MAX_DEGREE * (x + 1); i++) {
+                    int y = adjacent[i];
+                    if (y < 0 || stamp[y] == epoch) continue;
+                    stamp[y] = epoch;
+                    label[y] = c;
+                    if (size[c] == members[c].length) {
+                        members[c] = Arrays.copyOf(members[c], 2 * size[c]);
+                        memberEdges[c] = Arrays.copyOf(memberEdges[c], 2 * size[c]);
+                    }
+                    members[c][size[c]] = y;
+                    memberEdges[c][size[c]] = edgeTo(ex, y);
+                    size[c]++;
+                }
+            }
+        }
+        int large = 0;
+        while (finished[large]) large++;
+        //#endregion
+
+        //#region candidate edges out of the finished pieces, then Kruskal on the pieces
+        int count = 0;
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int[] fromPiece = new int[16];
+        int[] toPiece = new int[16];
+        long[] keys = new long[16];
+        for (int c = 0; c < pieces; c++) {
+            if (!finished[c]) continue;
+            for (int h = 0; h < size[c]; h++) {
+                int x = members[c][h];
+                int ex = memberEdges[c][h];
+                int e = ex;
+                do {
+                    int y = store.dest(e);
+                    int cy = stamp[y] == epoch ? label[y] : large;
+                    if (cy != c) {
+                        if (count == keys.length) {
+                            from = Arrays.copyOf(from, 2 * count);
+                            to = Arrays.copyOf(to, 2 * count);
+                            fromPiece = Arrays.copyOf(fromPiece, 2 * count);
+                            toPiece = Arrays.copyOf(toPiece, 2 * count);
+                            keys = Arrays.copyOf(keys, 2 * count);
+                        }
+                        from[count] = x;
+                        to[count] = y;
+                        fromPiece[count] = c;
+                        toPiece[count] = cy;
+                        //lengths are not negative, so the raw bits sort like the values
+                        keys[count] = Double.doubleToRawLongBits(length(x, y));
+                        count++;
+                    }
+                    e = store.oNext(e);
+                } while (e != ex);
+            }
+        }
+
+        long[] sorted = Arrays.copyOf(keys, count);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        PointSort.sortByKey(sorted, order, false);
+
+        DSU dsu = new DSU(pieces);
+        int joined = 0;
+        for (int k = 0; k < count && joined < pieces - 1; k++) {
+            int i = order[k];
+            if (!dsu.union(fromPiece[i], toPiece[i])) continue;
+            addEdge(from[i], to[i], Double.longBitsToDouble(sorted[k]));
+            joined++;
+        }
+        //#endregion
+    }
+
+    //an edge from y back to x, found around the ring of x, or -1 to locate y later
+    private int edgeTo(int ex, int y) {
+        int e = ex;
+        do {
+            if (store.dest(e) == y) return EdgeStore.sym(e);
+            e = store.oNext(e);
+        } while (e != ex);
+        return -1;
+    }
+    //#endregion
+
+    //#region tree edges
+    private void addEdge(int a, int b, double w) {
+        int k = freeEdgeCount > 0 ? freeEdges[--freeEdgeCount] : edgeIds++;
+        edgeFrom[k] = a;
+        edgeTo[k] = b;
+        int node = 2 * k + 1;
+        tree.reset(node, w);
+        tree.link(2 * a, node);
+        tree.link(node, 2 * b);
+        attach(a, b, k);
+        attach(b, a, k);
+
+        lengths.merge(w, 1, Integer::sum);
+        totalWeight += w;
+        edgeCount++;
+    }
+
+    private void removeEdge(int k) {
+        int a = edgeFrom[k], b = edgeTo[k];
+        int node = 2 * k + 1;
+        tree.cut(2 * a, node);
+        tree.cut(node, 2 * b);
+        detach(a, k);
+        detach(b, k);
+
+        double w = tree.value[node];
+        if (lengths.merge(w, -1, Integer::sum) == 0) lengths.remove(w);
+        totalWeight -= w;
+        edgeCount--;
+        freeEdges[freeEdgeCount++] = k;
+    }
+
+    private void attach(int v, int u, int k) {
+        for (int i = MAX_DEGREE * v; i < MAX_DEGREE * (v + 1); i++) {
+            if (adjacent[i] >= 0) continue;
+            adjacent[i] = u;
+            adjacentEdge[i] = k;
+            return;
+        }
+        throw new IllegalStateException("More than " + MAX_DEGREE + " tree edges at vertex " + v);
+    }
+
+    private void detach(int v, int k) {
+        for (int i = MAX_DEGREE * v; i < MAX_DEGREE * (v + 1); i++) {
+            if (adjacent[i] >= 0 && adjacentEdge[i] == k) {
+                adjacent[i] = -1;
+                return;
+            }
+        }
+    }
+
+    private double length(int a, int b) {
+        double dx = store.x(a) - store.x(b);
+        double dy = store.y(a) - store.y(b);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    //a tree has fewer edges than vertices, so edge ids stay below the vertex capacity
+    private void ensureCapacity(int vertices) {
+        int capacity = stamp.length;
+        if (vertices <= capacity) return;
+        int grown = Math.max(vertices, Math.max(16, capacity + (capacity >> 1)));
+
+        adjacent = Arrays.copyOf(adjacent, MAX_DEGREE * grown);
+        Arrays.fill(adjacent, MAX_DEGREE * capacity, adjacent.length, -1);
+        adjacentEdge = Arrays.copyOf(adjacentEdge, MAX_DEGREE * grown);
+        edgeFrom = Arrays.copyOf(edgeFrom, grown);
+        edgeTo = Arrays.copyOf(edgeTo, grown);
+        freeEdges = Arrays.copyOf(freeEdges, grown);
+        stamp = Arrays.copyOf(stamp, grown);
+        label = Arrays.copyOf(label, grown);
+        tree.ensureCapacity(2 * grown);
+    }
+    //#endregion
+
+    //#region link-cut tree
+    //splay trees over preferred paths, every node keeps the node with the largest value
+    //in its splay subtree, vertex nodes have -infinity so a path maximum is always an edge
+    private static class LinkCutTree {
+        int[] left = new int[0], right = new int[0], parent = new int[0];
+        boolean[] flipped = new boolean[0]; //children still to be swapped, for makeRoot
+        double[] value = new double[0];
+        int[] max = new int[0];
+        int[] stack = new int[0];
+
+        void ensureCapacity(int nodes) {
+            int old = value.length;
+            if (nodes <= old) return;
+            left = Arrays.copyOf(left, nodes);
+            right = Arrays.copyOf(right, nodes);
+            parent = Arrays.copyOf(parent, nodes);
+            flipped = Arrays.copyOf(flipped, nodes);
+            value = Arrays.copyOf(value, nodes);
+            max = Arrays.copyOf(max, nodes);
+            stack = new int[nodes];
+            for (int x = old; x < nodes; x++) reset(x, Double.NEGATIVE_INFINITY);
+        }
+
+        //x becomes a single node tree
+        void reset(int x, double v) {
+            left[x] = right[x] = parent[x] = -1;
+            flipped[x] = false;
+            value[x] = v;
+            max[x] = x;
+        }
+
+        boolean connected(int x, int y) {
+            return findRoot(x) == findRoot(y);
+        }
+
+        //node with the largest value on the path from x to y
+        int pathMax(int x, int y) {
+            makeRoot(x);
+            access(y);
+            return max[y];
+        }
+
+        void link(int x, int y) {
+            makeRoot(x);
+            parent[x] = y;
+        }
+
+        //x and y must be neighbours
+        void cut(int x, int y) {
+            makeRoot(x);
+            access(y);
+            left[y] = -1;
+            parent[x] = -1;
+            pull(y);
+        }
+
+        private void makeRoot(int x) {
+            access(x);
+            flipped[x] = !flipped[x];
+        }
+
+        private int findRoot(int x) {
+            access(x);
+            int r = x;
+            while (true) {
+                push(r);
+                if (left[r] < 0) break;
+                r = left[r];
+            }
+            splay(r);
+            return r;
+        }
+
+        //makes the path from the root to x preferred, x ends at the root of its splay tree
+        private void access(int x) {
+            int last = -1;
+            for (int y = x; y >= 0; y = parent[y]) {
+                splay(y);
+                right[y] = last;
+                pull(y);
+                last = y;
+            }
+            splay(x);
+        }
+
+        private boolean isRoot(int x) {
+            int p = parent[x];
+            return p < 0 || (left[p] != x && right[p] != x);
+        }
+
+        private void splay(int x) {
+            //pending flips are pushed from the top of the splay tree down to x first
+            int depth = 0;
+            for (int y = x; ; y = parent[y]) {
+                stack[depth++] = y;
+                if (isRoot(y)) break;
+            }
+            while (depth > 0) push(stack[--depth]);
+
+            while (!isRoot(x)) {
+                int p = parent[x];
+                if (!isRoot(p)) {
+                    int g = parent[p];
+                    rotate((left[g] == p) == (left[p] == x) ? p : x);
+                }
+                rotate(x);
+            }
+        }
+
+        private void rotate(int x) {
+            int p = parent[x], g = parent[p];
+            if (!isRoot(p)) {
+                if (left[g] == p) left[g] = x;
+                else right[g] = x;
+            }
+            parent[x] = g;
+            if (left[p] == x) {
+                left[p] = right[x];
+                if (right[x] >= 0) parent[right[x]] = p;
+                right[x] = p;
+            } else {
+                right[p] = left[x];
+                if (left[x] >= 0) parent[left[x]] = p;
+                left[x] = p;
+            }
+            parent[p] = x;
+            pull(p);
+            pull(x);
+        }
+
+        private void push(int x) {
+            if (!flipped[x]) return;
+            int l = left[x];
+            left[x] = right[x];
+            right[x] = l;
+            if (left[x] >= 0) flipped[left[x]] = !flipped[left[x]];
+            if (right[x] >= 0) flipped[right[x]] = !flipped[right[x]];
+            flipped[x] = false;
+        }
+
+        private void pull(int x) {
+            int m = x;
+            if (left[x] >= 0 && value[max[left[x]]] > value[m]) m = max[left[x]];
+            if (right[x] >= 0 && value[max[right[x]]] > value[m]) m = max[right[x]];
+            max[x] = m;
+        }
+    }
+    //#endregion
+}
@@ -6,24 +6,18 @@
 
 
 //#region imports
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.Stack;
 //#endregion
 public class EMST {
 
-    //for disjoint set
-    private Map<DelaunayTriangulation.Point, DelaunayTriangulation.Point> parent = new HashMap<>();
     private static final double EPSILON = 1e-12;
 
     //#region usefull classes
@@ -56,14 +50,14 @@ public class EMST {
             this.totalWeight = totalWeight;
         }
 
+        //one buffered write instead of a printf per edge, see ResultWriter for the format
         public void printEdges() {
-            for (DelaunayTriangulation.QuarterEdge e : edges) {
-                DelaunayTriangulation.Point p1 = e.getOrig();
-                DelaunayTriangulation.Point p2 = e.getDest();
-                
-                // Cast to int if your Point class stores them as doubles, 
-                // or just use %d if they are already int fields.
-                System.out.printf("(%d, %d)(%d, %d)%n", (int)p1.x, (int)p1.y, (int)p2.x, (int)p2.y);
+            ResultWriter out = ResultWriter.text(System.out);
+            try {
+                for (DelaunayTriangulation.QuarterEdge e : edges) out.edge(e.store(), e.index());
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
     }
@@ -71,129 +65,26 @@ public class EMST {
     //#region helper
 
     public static List<DelaunayTriangulation.Point> readPointsFromFile(String filename) {
-        List<DelaunayTriangulation.Point> points = new ArrayList<>();
-        
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                
-                // Remove parentheses and split by comma
-                line = line.replace("(", "").replace(")", "");
-                String[] coords = line.split(",");
-                if (coords.length != 2) continue;
-                
-                try {
-                    double x = Double.parseDouble(coords[0].trim());
-                    double y = Double.parseDouble(coords[1].trim());
-                    points.add(new DelaunayTriangulation.Point(x, y));
-                } catch (NumberFormatException ex) {
-                    System.out.println("Skipping invalid line: " + line);
-                }
-            }
+        try {
+            return PointFileReader.toPoints(PointFileReader.readPacked(filename));
         } catch (IOException e) {
             e.printStackTrace();
         }
         
-        return points;
+        return new ArrayList<>();
     }
     //#endregion
     //#region MST
 
+    //same Kruskal as MST.computeMST, with the printable result
     public static MSTResult computeMST(DelaunayTriangulation.EdgePair hull, double alpha) {
-        Set<DelaunayTriangulation.QuarterEdge> allEdges = new HashSet<>();
-        collectEdges(hull.ldo, allEdges);
-
-        // 1. Sort all unique triangulation edges by length
-        List<DelaunayTriangulation.QuarterEdge> edgeList = new ArrayList<>(allEdges);
-        edgeList.sort(Comparator.comparingDouble(e -> 
-            distance(e.getOrig(), e.getDest())));
-
-        List<DelaunayTriangulation.QuarterEdge> mstEdges = new ArrayList<>();
-        double sumWeight = 0;
-        //to prevent loops
-        DSU dsu = new DSU();
-
-        // Apply Kruskal's
-        for (DelaunayTriangulation.QuarterEdge edge : edgeList) {
-            if (dsu.union(edge.getOrig(), edge.getDest())) {
-
-                //to respect the alpha property
-                if(distance(edge.getOrig(), edge.getDest()) <= alpha)
-                {
-                    mstEdges.add(edge);
-                    // Accumulate the weight w(E)
-                    sumWeight += distance(edge.getOrig(), edge.getDest());
-                }
-                else
-                {
-                    //the graph do not respect the property
-                    //return the result with the alphaProperty not respected,
-                    //and sum of weight until now
-                    MSTResult result = new MSTResult(mstEdges, sumWeight);
-                    result.alphaProperty = false;
-
-                    return result;
-                }
-                
-            }
-        }
-        
-        return new MSTResult(mstEdges, sumWeight);
-    }
-    
-
-    // Traverses the triangulation to find all unique edges
-    private static void collectEdges(DelaunayTriangulation.QuarterEdge start, Set<DelaunayTriangulation.QuarterEdge> visited) {
-        Stack<DelaunayTriangulation.QuarterEdge> stack = new Stack<>();
-        stack.push(start);
-
-
-        //Depth first search approach
-        while (!stack.isEmpty()) {
-            DelaunayTriangulation.QuarterEdge e = stack.pop();
-
-            //we have two identical edges, one from A to B and the other accessed with sym from B to A
-            // to avoid adding the same physical edge twice
-            DelaunayTriangulation.QuarterEdge canonical = (System.identityHashCode(e) < System.identityHashCode(e.sym())) ? e : e.sym();
-            
-            //Return true, pushes the canonical and it explores the neighbors
-            //we are moving around a point and across faces, because quad edge data structure represents the graph and its dual
-            if (visited.add(canonical)) {
-                // Explore neighbors using the provided navigation methods
-                stack.push(e.oNext());
-                stack.push(e.lNext());
-                stack.push(e.rNext());
-            }
-        }
-    }
-
-    private static double distance(DelaunayTriangulation.Point p1, DelaunayTriangulation.Point p2) {
-        double dx = p1.x - p2.x;
-        double dy = p1.y - p2.y;
-        return Math.sqrt(dx * dx + dy * dy);
+        MST.MSTResult mst = MST.computeMST(hull, alpha);
+        MSTResult result = new MSTResult(mst.edges, mst.totalWeight);
+        result.alphaProperty = mst.alphaProperty;
+        return result;
     }
 
     //#endregion 
-    //#region disjoint set
-    public DelaunayTriangulation.Point find(DelaunayTriangulation.Point p) {
-        if (!parent.containsKey(p)) parent.put(p, p);
-        if (parent.get(p) == p) return p;
-        parent.put(p, find(parent.get(p))); // Path compression
-        return parent.get(p);
-    }
-
-    public boolean union(DelaunayTriangulation.Point p1, DelaunayTriangulation.Point p2) {
-        DelaunayTriangulation.Point root1 = find(p1);
-        DelaunayTriangulation.Point root2 = find(p2);
-        if (root1 != root2) {
-            parent.put(root1, root2);
-            return true;
-        }
-        return false;
-    }
-    //#endregion
     public static class QuarterEdge {
         //attributes
         private QuarterEdge _next; //next quarter edge
@@ -419,30 +310,82 @@ public class EMST {
     }
     //#endregion
 
+    //usage: java EMST [file alpha... [--out edges [--binary]] [--snapshot file]], without arguments file and alphas are asked for
+    //several alphas (separated by spaces or commas) share one triangulation and one MST
+    //--out writes the whole tree to a file whatever its size, as text or with --binary as doubles
+    //--snapshot reuses the triangulation and tree saved by an earlier run on the same input
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
-        System.out.print("Enter the points file path: ");
-        String filename = scanner.nextLine();
-
-        System.out.print("Enter the alpha value: ");
-        double alpha = scanner.nextDouble();
+        String output = null;
+        String snapshot = null;
+        ResultWriter.Format format = ResultWriter.Format.TEXT;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out") && i + 1 < args.length) output = args[++i];
+            else if (args[i].equals("--snapshot") && i + 1 < args.length) snapshot = args[++i];
+            else if (args[i].equals("--binary")) format = ResultWriter.Format.BINARY;
+            else positional.add(args[i]);
+        }
+        args = positional.toArray(new String[0]);
+
+        String filename;
+        String alphas;
+        if (args.length >= 2) {
+            filename = args[0];
+            alphas = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        } else {
+            System.out.print("Enter the points file path: ");
+            filename = scanner.nextLine();
+
+            System.out.print("Enter the alpha value(s): ");
+            alphas = scanner.nextLine();
+        }
 
         try {
-            List<DelaunayTriangulation.Point> points = readPointsFromFile(filename);
-            DelaunayTriangulation.EdgePair result = DelaunayTriangulation.computeDelaunay(points);
+            //binary point files feed the triangulation directly
+            DelaunayTriangulation.EdgePair result;
+            MST.Tree tree = null;
+            int size;
+            if (snapshot != null) {
+                //same input as last time, triangulation and tree come back from the snapshot
+                TriangulationSnapshot.Loaded loaded = TriangulationSnapshot.loadOrBuild(filename, snapshot, true);
+                result = loaded.triangulation;
+                tree = loaded.tree;
+                size = result.ldo.store().vertexCount() + result.ldo.store().duplicatesDropped();
+            } else if (BinaryPointFile.isBinary(filename)) {
+                BinaryPointFile.Points points = BinaryPointFile.read(filename);
+                result = points.triangulate();
+                size = points.size();
+            } else {
+                List<DelaunayTriangulation.Point> points = readPointsFromFile(filename);
+                result = DelaunayTriangulation.computeDelaunay(points);
+                size = points.size();
+            }
 
-            MSTResult resultMst = computeMST(result, alpha);
-            
-            if(resultMst.alphaProperty)
-            {
-                System.out.println(resultMst.totalWeight);
-                if (points.size() <= 10) {resultMst.printEdges();}
+            if (tree == null) tree = MST.computeTree(result);
+            if (output != null) {
+                try (ResultWriter out = ResultWriter.open(output, format)) {
+                    out.edges(tree);
+                }
             }
-            else
-            {
-                System.out.println("FAIL" );
+
+            for (String token : alphas.trim().split("[\\s,]+")) {
+                double alpha = Double.parseDouble(token);
+                if(tree.alphaHolds(alpha))
+                {
+                    System.out.println(tree.totalWeight());
+                    if (size <= 10) {
+                        MST.MSTResult mst = tree.query(alpha);
+                        new MSTResult(mst.edges, mst.totalWeight).printEdges();
+                    }
+                }
+                else
+                {
+                    System.out.println("FAIL" );
+                }
             }
+            if (Metrics.ENABLED) System.err.print(Metrics.snapshot());
             
         } catch (Exception e) {
             System.err.println("Error processing EMST: " + e.getMessage());
@@ -450,4 +393,4 @@ public class EMST {
             scanner.close();
         }
     }
-}
\ No newline at end of file
+}
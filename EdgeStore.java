@@ -0,0 +1,246 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+//array backed quad-edge structure
+//every edge owns four consecutive quarter edges, so rot/sym are index arithmetic
+//and the whole triangulation lives in a few primitive arrays instead of 4 objects per edge
+public class EdgeStore {
+
+    //quarter edge q = 4 * edge + r, r = 0..3 (0 and 2 are primal, 1 and 3 are dual)
+    private int[] next; //oNext of every quarter edge
+    private int[] orig; //vertex id of the two primal quarter edges, -1 when the edge is free
+
+    //allocation state, a fork owns the slots [size, limit) of the shared arrays
+    private int size; //next never used edge slot
+    private int limit;
+    private int freeHead = -1; //deleted edges are recycled through next[4 * edge]
+    private final boolean forked;
+    //finished sub triangulations whose leftover slots a merge can still use
+    private EdgeStore spillA, spillB;
+
+    //vertex coordinates by id, the arrays may be longer than the vertex count once points are inserted
+    double[] xs;
+    double[] ys;
+    private DelaunayTriangulation.Point[] points;
+    private boolean ownsCoordinates; //false while xs, ys and points are still the arrays of the caller
+    private int vertices;
+    //ids of removed vertices, reused by addVertex, null until the first removal
+    private BitSet removed;
+    private int[] freeVertices;
+    private int freeVertexCount;
+    private int duplicatesDropped; //input points merged away by the sort stage
+
+    public EdgeStore(double[] xs, double[] ys, DelaunayTriangulation.Point[] points, int edgeCapacity) {
+        this.xs = xs;
+        this.ys = ys;
+        this.points = points;
+        vertices = xs.length;
+        edgeCapacity = Math.max(edgeCapacity, 1);
+        next = new int[4 * edgeCapacity];
+        orig = new int[2 * edgeCapacity];
+        Arrays.fill(orig, -1);
+        limit = edgeCapacity;
+        forked = false;
+    }
+
+    //shares the arrays of the parent, used by the parallel divide and conquer
+    private EdgeStore(EdgeStore parent, int fromEdge, int toEdge) {
+        xs = parent.xs;
+        ys = parent.ys;
+        points = parent.points;
+        vertices = parent.vertices;
+        next = parent.next;
+        orig = parent.orig;
+        size = fromEdge;
+        limit = toEdge;
+        forked = true;
+    }
+
+    //a planar graph on n vertices has at most 3n - 6 edges, deleted edges are reused
+    public static int capacityFor(int vertices) {
+        return 3 * vertices;
+    }
+
+    //#region vertices
+    //ids run from 0 to vertexCount() - 1, removed ids included (see isVertex)
+    public int vertexCount() { return vertices; }
+    public int liveVertexCount() { return vertices - freeVertexCount; }
+    public boolean isVertex(int v) { return v >= 0 && v < vertices && (removed == null || !removed.get(v)); }
+    public double x(int v) { return xs[v]; }
+    public double y(int v) { return ys[v]; }
+
+    public int duplicatesDropped() { return duplicatesDropped; }
+    void setDuplicatesDropped(int duplicates) { duplicatesDropped = duplicates; }
+
+    public DelaunayTriangulation.Point point(int v) {
+        if (points != null) return points[v];
+        return new DelaunayTriangulation.Point(xs[v], ys[v]);
+    }
+
+    //appends a vertex for incremental insertion, the id is the new vertexCount() - 1, or reuses
+    //the id of a removed vertex; the arrays are copied before the first write, so arrays handed
+    //to the constructor (the points of computeDelaunay or of a point file) are never written
+    public int addVertex(double x, double y, DelaunayTriangulation.Point point) {
+        if (forked) throw new IllegalStateException("Vertices can only be added to a finished triangulation");
+        if (freeVertexCount > 0) {
+            if (!ownsCoordinates) ownCoordinates(xs.length);
+            int v = freeVertices[--freeVertexCount];
+            removed.clear(v);
+            xs[v] = x;
+            ys[v] = y;
+            if (points != null) points[v] = point;
+            return v;
+        }
+        if (vertices == xs.length) ownCoordinates(Math.max(2 * vertices, 16));
+        else if (!ownsCoordinates) ownCoordinates(xs.length);
+        xs[vertices] = x;
+        ys[vertices] = y;
+        if (points != null) points[vertices] = point;
+        return vertices++;
+    }
+
+    //gives the id of a vertex back once the triangulation has no edge left at it
+    void removeVertex(int v) {
+        if (removed == null) {
+            removed = new BitSet();
+            freeVertices = new int[16];
+        }
+        if (freeVertexCount == freeVertices.length) freeVertices = Arrays.copyOf(freeVertices, 2 * freeVertexCount);
+        removed.set(v);
+        freeVertices[freeVertexCount++] = v;
+        if (points != null) {
+            if (!ownsCoordinates) ownCoordinates(xs.length);
+            points[v] = null;
+        }
+    }
+
+    private void ownCoordinates(int capacity) {
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        if (points != null) points = Arrays.copyOf(points, capacity);
+        ownsCoordinates = true;
+    }
+    //#endregion
+
+    //#region navigation
+    public static int rot(int e) { return (e & ~3) | ((e + 1) & 3); }
+    public static int sym(int e) { return e ^ 2; }
+    public static int rotInv(int e) { return (e & ~3) | ((e + 3) & 3); }
+    public static int edgeOf(int e) { return e >>> 2; }
+
+    public int orig(int e) { return orig[e >>> 1]; }
+    public int dest(int e) { return orig[(e ^ 2) >>> 1]; }
+
+    public int oNext(int e) { return next[e]; }
+    public int oPrev(int e) { return rot(next[rot(e)]); }
+    public int lNext(int e) { return rot(next[rotInv(e)]); }
+    public int lPrev(int e) { return next[e] ^ 2; }
+    public int rNext(int e) { return rotInv(next[rot(e)]); }
+    public int rPrev(int e) { return next[e ^ 2]; }
+
+    //all edge slots, free ones included (see isLive)
+    public int edgeSlots() { return next.length >>> 2; }
+    public boolean isLive(int edge) { return orig[edge << 1] >= 0; }
+    //#endregion
+
+    //#region topological operators
+    public int makeEdge(int origin, int destination) {
+        int edge = allocate();
+        if (edge < 0) {
+            if (forked) throw new IllegalStateException("Edge slots of the sub triangulation exhausted");
+            grow();
+            edge = allocate();
+        }
+
+        int q = edge << 2;
+        next[q] = q;
+        next[q + 1] = q + 3;
+        next[q + 2] = q + 2;
+        next[q + 3] = q + 1;
+        orig[edge << 1] = origin;
+        orig[(edge << 1) + 1] = destination;
+        return q;
+    }
+
+    public void splice(int a, int b) {
+        Metrics.count(Metrics.Counter.SPLICE);
+        int alpha = rot(next[a]);
+        int beta = rot(next[b]);
+
+        int t1 = next[b];
+        int t2 = next[a];
+        int t3 = next[beta];
+        int t4 = next[alpha];
+
+        next[a] = t1;
+        next[b] = t2;
+        next[alpha] = t3;
+        next[beta] = t4;
+    }
+
+    //derived operators from splice and makeEdge
+    public int connect(int a, int b) {
+        int e = makeEdge(dest(a), orig(b));
+        splice(e, lNext(a));
+        splice(e ^ 2, b);
+        return e;
+    }
+
+    public void delete(int e) {
+        splice(e, oPrev(e));
+        splice(e ^ 2, oPrev(e ^ 2));
+
+        int edge = e >>> 2;
+        orig[edge << 1] = -1;
+        orig[(edge << 1) + 1] = -1;
+        next[edge << 2] = freeHead;
+        freeHead = edge;
+    }
+    //#endregion
+
+    //#region allocation
+    private int allocate() {
+        if (freeHead >= 0) {
+            int edge = freeHead;
+            freeHead = next[edge << 2];
+            return edge;
+        }
+        if (size < limit) return size++;
+
+        //finished children never get slots back, so an exhausted one is dropped
+        if (spillA != null) {
+            int edge = spillA.allocate();
+            if (edge >= 0) return edge;
+            spillA = null;
+        }
+        if (spillB != null) {
+            int edge = spillB.allocate();
+            if (edge >= 0) return edge;
+            spillB = null;
+        }
+        return -1;
+    }
+
+    //hands the slots [fromEdge, toEdge) to an independent sub triangulation
+    //the two halves of a split get disjoint slots and vertices, so they can be built concurrently
+    EdgeStore fork(int fromEdge, int toEdge) {
+        return new EdgeStore(this, fromEdge, toEdge);
+    }
+
+    //after both halves joined, the merge of this store takes its edges from what they left over
+    void adopt(EdgeStore left, EdgeStore right) {
+        size = limit;
+        spillA = left;
+        spillB = right;
+    }
+
+    //only reached if the capacity estimate was too small
+    private void grow() {
+        int old = next.length >>> 2;
+        next = Arrays.copyOf(next, next.length * 2);
+        orig = Arrays.copyOf(orig, orig.length * 2);
+        Arrays.fill(orig, old << 1, orig.length, -1);
+        limit = next.length >>> 2;
+    }
+    //#endregion
+}
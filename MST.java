@@ -1,9 +1,7 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.Stack;
 
 public class MST {
     
@@ -12,6 +10,7 @@ public class MST {
         public List<DelaunayTriangulation.QuarterEdge> edges;
         public double totalWeight;
         public boolean alphaProperty = true;
+        public Metrics.Snapshot metrics; //totals at the end of the run, null unless Metrics.ENABLED
 
         public MSTResult(List<DelaunayTriangulation.QuarterEdge> edges, double totalWeight) {
             this.edges = edges;
@@ -19,31 +18,141 @@ public class MST {
         }
     }
 
+    //unique triangulation edges sorted by length, ties in slot order so the order is deterministic
+    public static class SortedEdges {
+        public final EdgeStore store;
+        public final int[] edges; //primal quarter edge of every edge
+        public final long[] keys; //bits of the squared length, same order as the lengths
+
+        SortedEdges(EdgeStore store, int[] edges, long[] keys) {
+            this.store = store;
+            this.edges = edges;
+            this.keys = keys;
+        }
+
+        public int size() { return edges.length; }
+        public double squaredLength(int i) { return Double.longBitsToDouble(keys[i]); }
+        public double length(int i) { return Math.sqrt(squaredLength(i)); }
+    }
+
+    //the whole minimum spanning tree, built once to answer any number of alpha thresholds
+    //Kruskal accepts the edges in sorted order, so the weights are already ascending
+    public static class Tree {
+        public final EdgeStore store;
+        public final int[] edges; //primal quarter edges of the tree, shortest first
+        public final double[] weights;
+        private final double[] prefix; //prefix[i] = weight of the first i edges
+
+        Tree(EdgeStore store, int[] edges, double[] weights) {
+            this.store = store;
+            this.edges = edges;
+            this.weights = weights;
+            prefix = new double[weights.length + 1];
+            for (int i = 0; i < weights.length; i++) prefix[i + 1] = prefix[i] + weights[i];
+        }
+
+        public int size() { return edges.length; }
+        public double totalWeight() { return prefix[weights.length]; }
+        public double longestEdge() { return weights.length == 0 ? 0 : weights[weights.length - 1]; }
+
+        //O(1), every tree edge is at most alpha
+        public boolean alphaHolds(double alpha) {
+            return longestEdge() <= alpha;
+        }
+
+        //O(log n), weight of the tree edges up to alpha, the total weight when the property holds
+        public double weight(double alpha) {
+            return prefix[countUpTo(alpha)];
+        }
+
+        //same answer computeMST(hull, alpha) gives
+        public MSTResult query(double alpha) {
+            int count = countUpTo(alpha);
+            List<DelaunayTriangulation.QuarterEdge> accepted = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) accepted.add(new DelaunayTriangulation.QuarterEdge(store, edges[i]));
+
+            MSTResult result = new MSTResult(accepted, prefix[count]);
+            result.alphaProperty = count == weights.length;
+            return result;
+        }
+
+        //number of edges with weight <= alpha
+        int countUpTo(double alpha) {
+            int lo = 0, hi = weights.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (weights[mid] <= alpha) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    public static Tree computeTree(DelaunayTriangulation.EdgePair hull) {
+        EdgeStore store = hull.ldo.store();
+        SortedEdges sorted = sortEdges(store, false);
+
+        int needed = store.liveVertexCount() - 1;
+        int[] edges = new int[needed];
+        double[] weights = new double[needed];
+        int count = 0;
+        DSU dsu = new DSU(store.vertexCount());
+
+        // Apply Kruskal's, without an alpha to stop at
+        long start = Metrics.start();
+        for (int i = 0; i < sorted.size() && count < needed; i++) {
+            int e = sorted.edges[i];
+            Metrics.count(Metrics.Counter.UNION);
+            if (dsu.union(store.orig(e), store.dest(e))) {
+                edges[count] = e;
+                weights[count] = sorted.length(i);
+                count++;
+            }
+        }
+        Metrics.stop(Metrics.Phase.KRUSKAL, start);
+        return new Tree(store, edges, weights);
+    }
+
     
     public static MSTResult computeMST(DelaunayTriangulation.EdgePair hull, double alpha) {
-        Set<DelaunayTriangulation.QuarterEdge> allEdges = new HashSet<>();
-        collectEdges(hull.ldo, allEdges);
+        try {
+            return computeMST(hull, alpha, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); //not reached, nothing is written
+        }
+    }
+
+    //with a writer the accepted edges are written as Kruskal takes them instead of being
+    //kept, the result then carries the weight and the alpha property with an empty edge list
+    public static MSTResult computeMST(DelaunayTriangulation.EdgePair hull, double alpha, ResultWriter out) throws IOException {
+        EdgeStore store = hull.ldo.store();
 
         // 1. Sort all unique triangulation edges by length
-        List<DelaunayTriangulation.QuarterEdge> edgeList = new ArrayList<>(allEdges);
-        edgeList.sort(Comparator.comparingDouble(e -> 
-            distance(e.getOrig(), e.getDest())));
+        SortedEdges sorted = sortEdges(store, false);
 
         List<DelaunayTriangulation.QuarterEdge> mstEdges = new ArrayList<>();
         double sumWeight = 0;
+        int accepted = 0;
         //to prevent loops
-        DSU dsu = new DSU();
+        DSU dsu = new DSU(store.vertexCount());
+        int needed = store.liveVertexCount() - 1;
 
         // Apply Kruskal's
-        for (DelaunayTriangulation.QuarterEdge edge : edgeList) {
-            if (dsu.union(edge.getOrig(), edge.getDest())) {
+        long start = Metrics.start();
+        for (int i = 0; i < sorted.size() && accepted < needed; i++) {
+            int e = sorted.edges[i];
+            Metrics.count(Metrics.Counter.UNION);
+            if (dsu.union(store.orig(e), store.dest(e))) {
+                double length = sorted.length(i);
 
                 //to respect the alpha property
-                if(distance(edge.getOrig(), edge.getDest()) <= alpha)
+                if(length <= alpha)
                 {
-                    mstEdges.add(edge);
+                    if (out != null) out.edge(store, e);
+                    else mstEdges.add(new DelaunayTriangulation.QuarterEdge(store, e));
+                    accepted++;
                     // Accumulate the weight w(E)
-                    sumWeight += distance(edge.getOrig(), edge.getDest());
+                    sumWeight += length;
                 }
                 else
                 {
@@ -53,45 +162,53 @@ public class MST {
                     MSTResult result = new MSTResult(mstEdges, sumWeight);
                     result.alphaProperty = false;
 
-                    return result;
+                    return finish(result, start);
                 }
                 
             }
         }
         
-        return new MSTResult(mstEdges, sumWeight);
+        return finish(new MSTResult(mstEdges, sumWeight), start);
+    }
+
+    private static MSTResult finish(MSTResult result, long kruskalStart) {
+        Metrics.stop(Metrics.Phase.KRUSKAL, kruskalStart);
+        if (Metrics.ENABLED) result.metrics = Metrics.snapshot();
+        return result;
     }
     
 
-    // Traverses the triangulation to find all unique edges
-    private static void collectEdges(DelaunayTriangulation.QuarterEdge start, Set<DelaunayTriangulation.QuarterEdge> visited) {
-        Stack<DelaunayTriangulation.QuarterEdge> stack = new Stack<>();
-        stack.push(start);
-
-
-        //Depth first search approach
-        while (!stack.isEmpty()) {
-            DelaunayTriangulation.QuarterEdge e = stack.pop();
-
-            //we have two identical edges, one from A to B and the other accessed with sym from B to A
-            // to avoid adding the same physical edge twice
-            DelaunayTriangulation.QuarterEdge canonical = (System.identityHashCode(e) < System.identityHashCode(e.sym())) ? e : e.sym();
-            
-            //Return true, pushes the canonical and it explores the neighbors
-            //we are moving around a point and across faces, because quad edge data structure represents the graph and its dual
-            if (visited.add(canonical)) {
-                // Explore neighbors using the provided navigation methods
-                stack.push(e.oNext());
-                stack.push(e.lNext());
-                stack.push(e.rNext());
-            }
+    //reads every live edge straight from the store slots, no traversal and no hashing
+    public static SortedEdges sortEdges(EdgeStore store, boolean parallel) {
+        long start = Metrics.start();
+        int slots = store.edgeSlots();
+        int count = 0;
+        for (int i = 0; i < slots; i++) {
+            if (store.isLive(i)) count++;
         }
-    }
 
-    private static double distance(DelaunayTriangulation.Point p1, DelaunayTriangulation.Point p2) {
-        double dx = p1.x - p2.x;
-        double dy = p1.y - p2.y;
-        return Math.sqrt(dx * dx + dy * dy);
+        int[] edges = new int[count];
+        long[] keys = new long[count];
+        int at = 0;
+        for (int i = 0; i < slots; i++) {
+            if (!store.isLive(i)) continue;
+            int e = i << 2;
+            int a = store.orig(e), b = store.dest(e);
+            double dx = store.x(a) - store.x(b);
+            double dy = store.y(a) - store.y(b);
+            //squared lengths are never negative, so their bits sort like the values
+            edges[at] = e;
+            keys[at] = Double.doubleToRawLongBits(dx * dx + dy * dy);
+            at++;
+        }
+
+        Metrics.stop(Metrics.Phase.EDGE_EXTRACTION, start);
+        Metrics.edges(count);
+
+        start = Metrics.start();
+        PointSort.sortByKey(keys, edges, parallel);
+        Metrics.stop(Metrics.Phase.EDGE_SORT, start);
+        return new SortedEdges(store, edges, keys);
     }
 
 }
@@ -0,0 +1,168 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+//counters and phase timers for the hot paths, switched on with -Demst.metrics=true
+//ENABLED is a static final constant, so with metrics off the JIT folds every
+//"if (ENABLED)" in count/start/stop away and the hot paths run the same code as before
+//counters are striped per thread (a plain long[] owned by one thread, summed on read),
+//so the parallel merges never share a cache line; phases are rare and use LongAdders
+//with metrics on the totals are published as the MBean "emst:type=Metrics"
+public class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("emst.metrics");
+
+    public enum Counter {
+        ORIENT,             //orientation tests
+        IN_CIRCLE,          //in-circle tests
+        SPLICE,
+        TANGENT_STEP,       //steps of the lower common tangent search in merge
+        CANDIDATE_DELETION, //edges the merge loop deleted
+        UNION               //union-find unions of Kruskal, successful or not
+    }
+
+    public enum Phase { PARSE, SORT_DEDUP, TRIANGULATION, EDGE_EXTRACTION, EDGE_SORT, KRUSKAL }
+
+    private static final int COUNTERS = Counter.values().length;
+
+    //every thread that counted owns one stripe, the stripes outlive their threads
+    private static final Queue<long[]> STRIPES = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<long[]> STRIPE = ThreadLocal.withInitial(() -> {
+        long[] stripe = new long[COUNTERS];
+        STRIPES.add(stripe);
+        return stripe;
+    });
+
+    private static final LongAdder[] PHASE_NANOS = new LongAdder[Phase.values().length];
+    private static final AtomicLong PEAK_EDGES = new AtomicLong();
+
+    static {
+        for (int i = 0; i < PHASE_NANOS.length; i++) PHASE_NANOS[i] = new LongAdder();
+        if (ENABLED) register();
+    }
+
+    //#region recording
+    static void count(Counter c) {
+        if (ENABLED) STRIPE.get()[c.ordinal()]++;
+    }
+
+    //start of a phase, hand the value back to stop
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    static void stop(Phase phase, long start) {
+        if (ENABLED) PHASE_NANOS[phase.ordinal()].add(System.nanoTime() - start);
+    }
+
+    //live edges of a triangulation handed to the MST, the largest one is kept
+    static void edges(long live) {
+        if (ENABLED) PEAK_EDGES.accumulateAndGet(live, Math::max);
+    }
+    //#endregion
+
+    //#region reading
+    public static class Snapshot {
+        private final long[] counters;
+        private final long[] phaseNanos;
+        public final long peakEdges;
+        public final long orientFallbacks; //exact fallbacks, see Predicates
+        public final long inCircleFallbacks;
+
+        Snapshot(long[] counters, long[] phaseNanos, long peakEdges, long orientFallbacks, long inCircleFallbacks) {
+            this.counters = counters;
+            this.phaseNanos = phaseNanos;
+            this.peakEdges = peakEdges;
+            this.orientFallbacks = orientFallbacks;
+            this.inCircleFallbacks = inCircleFallbacks;
+        }
+
+        public long count(Counter c) { return counters[c.ordinal()]; }
+        public long nanos(Phase p) { return phaseNanos[p.ordinal()]; }
+        public double millis(Phase p) { return phaseNanos[p.ordinal()] / 1e6; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Phase p : Phase.values()) sb.append(String.format("%-18s %10.1f ms%n", p, millis(p)));
+            for (Counter c : Counter.values()) sb.append(String.format("%-18s %13d%n", c, count(c)));
+            sb.append(String.format("%-18s %13d%n", "PEAK_EDGES", peakEdges));
+            sb.append(String.format("%-18s %13d / %d%n", "EXACT_FALLBACKS", orientFallbacks, inCircleFallbacks));
+            return sb.toString();
+        }
+    }
+
+    //totals since the start or the last reset; stripes of running threads may lag by a few counts
+    public static Snapshot snapshot() {
+        long[] counters = new long[COUNTERS];
+        for (long[] stripe : STRIPES) {
+            for (int i = 0; i < COUNTERS; i++) counters[i] += stripe[i];
+        }
+        long[] phases = new long[PHASE_NANOS.length];
+        for (int i = 0; i < phases.length; i++) phases[i] = PHASE_NANOS[i].sum();
+        return new Snapshot(counters, phases, PEAK_EDGES.get(),
+            Predicates.orientFallbacks(), Predicates.inCircleFallbacks());
+    }
+
+    //meant for quiet moments between runs, counts of threads running meanwhile can get lost
+    public static void reset() {
+        for (long[] stripe : STRIPES) {
+            for (int i = 0; i < COUNTERS; i++) stripe[i] = 0;
+        }
+        for (LongAdder phase : PHASE_NANOS) phase.reset();
+        PEAK_EDGES.set(0);
+        Predicates.resetCounters();
+    }
+    //#endregion
+
+    //#region jmx
+    public interface MetricsMXBean {
+        boolean isEnabled();
+        Map<String, Long> getCounters();
+        Map<String, Double> getPhaseMillis();
+        long getPeakEdges();
+        long getOrientFallbacks();
+        long getInCircleFallbacks();
+        void reset();
+    }
+
+    private static class View implements MetricsMXBean {
+        public boolean isEnabled() { return ENABLED; }
+
+        public Map<String, Long> getCounters() {
+            Snapshot s = snapshot();
+            Map<String, Long> counters = new LinkedHashMap<>();
+            for (Counter c : Counter.values()) counters.put(c.name(), s.count(c));
+            return counters;
+        }
+
+        public Map<String, Double> getPhaseMillis() {
+            Snapshot s = snapshot();
+            Map<String, Double> phases = new LinkedHashMap<>();
+            for (Phase p : Phase.values()) phases.put(p.name(), s.millis(p));
+            return phases;
+        }
+
+        public long getPeakEdges() { return PEAK_EDGES.get(); }
+        public long getOrientFallbacks() { return Predicates.orientFallbacks(); }
+        public long getInCircleFallbacks() { return Predicates.inCircleFallbacks(); }
+        public void reset() { Metrics.reset(); }
+    }
+
+    private static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                new StandardMBean(new View(), MetricsMXBean.class, true), new ObjectName("emst:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("Metrics are not published over JMX: " + e.getMessage());
+        }
+    }
+    //#endregion
+}
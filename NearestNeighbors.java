@@ -0,0 +1,233 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//nearest neighbour queries answered from the Delaunay triangulation itself
+//- nearest: the query is located with a walk, then the search moves to a closer Delaunay
+//  neighbour while there is one; a vertex with no closer neighbour owns the Voronoi cell
+//  of the query, so it is the nearest point
+//- k nearest: best first expansion over the Delaunay edges from the nearest point, the
+//  points inside any circle induce a connected Delaunay subgraph, so the expansion pops
+//  them in order of distance
+//- all nearest: every point's nearest neighbour is one of its Delaunay neighbours, one
+//  pass over the edges finds them all
+//queries only read the triangulation and keep their scratch on the stack, any number of
+//threads can share one index as long as nobody changes the triangulation meanwhile
+public class NearestNeighbors {
+
+    private final DelaunayTriangulation.EdgePair triangulation;
+    private final EdgeStore store;
+    private final int[] seeds; //cbrt(n) edges spread over the triangulation, where the walks start
+
+    public NearestNeighbors(DelaunayTriangulation.EdgePair triangulation) {
+        this.triangulation = triangulation;
+        this.store = triangulation.ldo.store();
+
+        SplittableRandom random = new SplittableRandom(store.liveVertexCount());
+        int[] picked = new int[(int) Math.cbrt(store.liveVertexCount())];
+        int count = 0;
+        for (int tries = 0; count < picked.length && tries < 32 * picked.length; tries++) {
+            int edge = random.nextInt(store.edgeSlots());
+            if (store.isLive(edge)) picked[count++] = (edge << 2) | (random.nextBoolean() ? 2 : 0);
+        }
+        seeds = Arrays.copyOf(picked, count);
+    }
+
+    //#region nearest
+    //vertex id of the point closest to (x, y)
+    public int nearest(double x, double y) {
+        return store.orig(nearestEdge(x, y, -1, null));
+    }
+
+    public DelaunayTriangulation.Point nearest(DelaunayTriangulation.Point p) {
+        return store.point(nearest(p.x, p.y));
+    }
+
+    //an edge out of the nearest vertex, the walk starts at the hint or at a seed when it is -1
+    //the triangles walked and the descent steps are added to steps[0] when steps is given
+    int nearestEdge(double x, double y, int hint, long[] steps) {
+        int e = DelaunayTriangulation.locatePoint(triangulation, x, y, hint >= 0 ? hint : seed(x, y), steps);
+        if (e < 0) e = ~e;
+
+        //greedy descent, every step strictly decreases the distance so it ends
+        double best = distance(store.orig(e), x, y);
+        while (true) {
+            int closer = -1;
+            int f = e;
+            do {
+                double d = distance(store.dest(f), x, y);
+                if (d < best) {
+                    best = d;
+                    closer = f;
+                }
+                f = store.oNext(f);
+            } while (f != e);
+            if (closer < 0) return e;
+            e = EdgeStore.sym(closer);
+            if (steps != null) steps[0]++;
+        }
+    }
+
+    //the seed edge whose origin is closest, the walk from there is short
+    int seed(double x, double y) {
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int e : seeds) {
+            if (!store.isLive(EdgeStore.edgeOf(e))) continue;
+            double d = distance(store.orig(e), x, y);
+            if (d < bestDistance) {
+                best = e;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+    //#endregion
+
+    //#region k nearest
+    //vertex ids of the k points closest to (x, y), closest first, fewer if there are fewer points
+    public int[] nearest(double x, double y, int k) {
+        if (k <= 0) return new int[0];
+        int[] result = new int[Math.min(k, store.liveVertexCount())];
+        int found = 0;
+
+        int start = nearestEdge(x, y, -1, null);
+        Frontier frontier = new Frontier();
+        VertexSet seen = new VertexSet();
+        frontier.push(distance(store.orig(start), x, y), start);
+        seen.add(store.orig(start));
+
+        while (found < result.length && !frontier.isEmpty()) {
+            int e = frontier.pop();
+            result[found++] = store.orig(e);
+            int f = e;
+            do {
+                int u = store.dest(f);
+                if (seen.add(u)) frontier.push(distance(u, x, y), EdgeStore.sym(f));
+                f = store.oNext(f);
+            } while (f != e);
+        }
+        return found == result.length ? result : Arrays.copyOf(result, found);
+    }
+    //#endregion
+
+    //#region all nearest
+    //nearest other point of every vertex by id, -1 for ids that are not in use
+    //O(n), each Delaunay edge is looked at once, ties go to the smaller id
+    public int[] allNearest() {
+        int n = store.vertexCount();
+        int[] nearest = new int[n];
+        double[] best = new double[n];
+        Arrays.fill(nearest, -1);
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+
+        for (int i = 0; i < store.edgeSlots(); i++) {
+            if (!store.isLive(i)) continue;
+            int a = store.orig(i << 2), b = store.dest(i << 2);
+            double d = distance(a, store.x(b), store.y(b));
+            if (d < best[a] || (d == best[a] && b < nearest[a])) {
+                best[a] = d;
+                nearest[a] = b;
+            }
+            if (d < best[b] || (d == best[b] && a < nearest[b])) {
+                best[b] = d;
+                nearest[b] = a;
+            }
+        }
+        return nearest;
+    }
+    //#endregion
+
+    private double distance(int v, double x, double y) {
+        double dx = store.x(v) - x;
+        double dy = store.y(v) - y;
+        return dx * dx + dy * dy;
+    }
+
+    //binary min-heap of quarter edges keyed by the distance of their origin
+    private static class Frontier {
+        private double[] keys = new double[16];
+        private int[] edges = new int[16];
+        private int size;
+
+        boolean isEmpty() { return size == 0; }
+
+        void push(double key, int edge) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                edges = Arrays.copyOf(edges, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) break;
+                keys[i] = keys[parent];
+                edges[i] = edges[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            edges[i] = edge;
+        }
+
+        int pop() {
+            int top = edges[0];
+            size--;
+            double key = keys[size];
+            int edge = edges[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+                if (keys[child] >= key) break;
+                keys[i] = keys[child];
+                edges[i] = edges[child];
+                i = child;
+            }
+            keys[i] = key;
+            edges[i] = edge;
+            return top;
+        }
+    }
+
+    //open addressing set of vertex ids, a query touches O(k) vertices so it stays small
+    private static class VertexSet {
+        private int[] slots = new int[32];
+        private int size;
+
+        VertexSet() {
+            Arrays.fill(slots, -1);
+        }
+
+        //false if v was there already
+        boolean add(int v) {
+            if (2 * (size + 1) > slots.length) grow();
+            int mask = slots.length - 1;
+            for (int i = mix(v) & mask; ; i = (i + 1) & mask) {
+                if (slots[i] == v) return false;
+                if (slots[i] < 0) {
+                    slots[i] = v;
+                    size++;
+                    return true;
+                }
+            }
+        }
+
+        private void grow() {
+            int[] old = slots;
+            slots = new int[2 * old.length];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int v : old) {
+                if (v < 0) continue;
+                int i = mix(v) & mask;
+                while (slots[i] >= 0) i = (i + 1) & mask;
+                slots[i] = v;
+            }
+        }
+
+        private static int mix(int v) {
+            int h = v * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,556 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//Delaunay triangulation of point files that do not fit in the heap
+//
+//  1. partition: a first pass samples the x coordinates, a second one deals the points
+//     into vertical strips on disk of about stripSize points each
+//  2. sweep: the strips are triangulated left to right with the divide and conquer and
+//     merged into what is left of the triangulation so far with the same merge; a triangle
+//     whose circumcircle ends left of the next strip can never be broken again, so its
+//     edges are written out, and only the vertices of open triangles and of the hull are
+//     kept, with their neighbours, for the next strip
+//
+//output: the distinct points in triangulation order as a sorted binary point file and the
+//edges as a binary edge file whose ids are positions in that point file, little endian
+//
+//  edge file header (32 bytes): magic "DTEF", version, reserved, edge count (long), vertex count (long)
+//  records: a (long), b (long)
+//
+//memory stays around one strip plus the band of open triangles along the sweep line and
+//the hull, inputs that keep long runs of triangles open (points on a few lines or circles)
+//keep more of it
+public class OutOfCoreDelaunay {
+
+    public static final int EDGE_MAGIC = 0x46455444; //"DTEF" read as little endian int
+    public static final int EDGE_VERSION = 1;
+    public static final int EDGE_HEADER_SIZE = 32;
+
+    public static final int DEFAULT_STRIP_SIZE = 1 << 21;
+
+    private static final int SAMPLE_SIZE = 1 << 20; //x keys kept by the first pass
+    private static final int STRIP_BUFFERS = 1 << 26; //bytes buffered over all strips while dealing
+    private static final int IO_BUFFER = 1 << 20;
+
+    public static class Summary {
+        public final long vertices; //distinct points
+        public final long edges;
+        public final long duplicates;
+        public final int strips;
+        public final int peakVertices; //most vertices held in memory at once
+
+        Summary(long vertices, long edges, long duplicates, int strips, int peakVertices) {
+            this.vertices = vertices;
+            this.edges = edges;
+            this.duplicates = duplicates;
+            this.strips = strips;
+            this.peakVertices = peakVertices;
+        }
+    }
+
+    public static Summary triangulate(String input, String pointsOut, String edgesOut) throws IOException {
+        return triangulate(input, pointsOut, edgesOut, DEFAULT_STRIP_SIZE);
+    }
+
+    //input is a text or binary point file, the strips are kept in a temporary directory
+    public static Summary triangulate(String input, String pointsOut, String edgesOut, int stripSize) throws IOException {
+        if (stripSize < 2) throw new IllegalArgumentException("A strip needs at least two points, got " + stripSize);
+        Path temp = Files.createTempDirectory("delaunay-strips");
+        try {
+            long[] bounds = bounds(input, stripSize);
+            int strips = bounds.length + 1;
+            deal(input, temp, bounds);
+
+            Sweep sweep = new Sweep(edgesOut);
+            Points points = new Points(temp);
+            long duplicates = 0;
+            long offset = 0; //global id of the first pending point
+            double[] px = new double[0], py = new double[0];
+
+            //a strip is merged once the next one has two points, until then its first x is
+            //unknown; strips with fewer points are glued to the pending one
+            for (int j = 0; j < strips; j++) {
+                PointSort.Result unique = readStrip(temp, j);
+                duplicates += unique.duplicates;
+                points.append(unique.xs, unique.ys);
+                if (px.length >= 2 && unique.xs.length >= 2) {
+                    sweep.add(px, py, offset, unique.xs[0]);
+                    offset += px.length;
+                    px = unique.xs;
+                    py = unique.ys;
+                } else {
+                    px = concat(px, unique.xs);
+                    py = concat(py, unique.ys);
+                }
+            }
+            if (px.length >= 2) sweep.add(px, py, offset, Double.POSITIVE_INFINITY);
+
+            long vertices = points.write(pointsOut);
+            long edges = sweep.close(vertices);
+            return new Summary(vertices, edges, duplicates, strips, sweep.peak);
+        } finally {
+            delete(temp);
+        }
+    }
+
+    //#region partition
+    //upper x keys of the strips but the last one, quantiles of a reservoir sample
+    //keys are PointSort.key with the sign bit flipped, so signed order is Double.compare order
+    private static long[] bounds(String input, int stripSize) throws IOException {
+        long[] sample = new long[SAMPLE_SIZE];
+        long[] count = {0};
+        SplittableRandom random = new SplittableRandom(1);
+        scan(input, (xy, len) -> {
+            for (int i = 0; i < len; i += 2) {
+                long seen = count[0]++;
+                long key = order(xy[i]);
+                if (seen < SAMPLE_SIZE) {
+                    sample[(int) seen] = key;
+                } else {
+                    long slot = random.nextLong(seen + 1);
+                    if (slot < SAMPLE_SIZE) sample[(int) slot] = key;
+                }
+            }
+        });
+
+        int filled = (int) Math.min(count[0], SAMPLE_SIZE);
+        Arrays.sort(sample, 0, filled);
+        int strips = (int) Math.max(1, Math.min(filled, (count[0] + stripSize - 1) / stripSize));
+        long[] bounds = new long[strips - 1];
+        for (int j = 0; j < bounds.length; j++) {
+            bounds[j] = sample[(int) ((long) (j + 1) * filled / strips) - 1];
+        }
+        return bounds;
+    }
+
+    //second pass, every point goes to the first strip whose bound is not below its key
+    //the strip buffers share a fixed budget and are appended to their files when full
+    private static void deal(String input, Path dir, long[] bounds) throws IOException {
+        int strips = bounds.length + 1;
+        int capacity = Math.max(1 << 12, Math.min(1 << 16, STRIP_BUFFERS / strips)) & ~15;
+        ByteBuffer[] buffers = new ByteBuffer[strips];
+        for (int j = 0; j < strips; j++) {
+            buffers[j] = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            Files.createFile(stripFile(dir, j));
+        }
+
+        scan(input, (xy, len) -> {
+            for (int i = 0; i < len; i += 2) {
+                int j = strip(bounds, order(xy[i]));
+                ByteBuffer buf = buffers[j];
+                if (!buf.hasRemaining()) flush(dir, j, buf);
+                buf.putDouble(xy[i]);
+                buf.putDouble(xy[i + 1]);
+            }
+        });
+        for (int j = 0; j < strips; j++) flush(dir, j, buffers[j]);
+    }
+
+    private static int strip(long[] bounds, long key) {
+        int lo = 0, hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static void flush(Path dir, int strip, ByteBuffer buf) throws IOException {
+        buf.flip();
+        try (FileChannel channel = FileChannel.open(stripFile(dir, strip), StandardOpenOption.APPEND)) {
+            while (buf.hasRemaining()) channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    //distinct points of one strip in triangulation order, the strip file is gone afterwards
+    private static PointSort.Result readStrip(Path dir, int strip) throws IOException {
+        Path file = stripFile(dir, strip);
+        long bytes = Files.size(file);
+        if (bytes / 16 > Integer.MAX_VALUE - 8) throw new IOException("Strip " + strip + " is too large, use smaller strips");
+        int n = (int) (bytes / 16);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            int at = 0;
+            while (at < n) {
+                buf.clear();
+                buf.limit((int) Math.min(IO_BUFFER, 16L * (n - at)));
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf) < 0) throw new IOException("Strip " + strip + " is truncated");
+                }
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    xs[at] = buf.getDouble();
+                    ys[at] = buf.getDouble();
+                    at++;
+                }
+            }
+        }
+        Files.delete(file);
+        return PointSort.sortUnique(xs, ys, true);
+    }
+
+    private static Path stripFile(Path dir, int strip) {
+        return dir.resolve("strip-" + strip + ".bin");
+    }
+
+    private static long order(double x) {
+        return PointSort.key(x) ^ Long.MIN_VALUE;
+    }
+
+    private static void scan(String input, PointFileReader.PackedConsumer consumer) throws IOException {
+        if (BinaryPointFile.isBinary(input)) BinaryPointFile.forEachBlock(input, consumer);
+        else PointFileReader.forEachChunk(input, consumer);
+    }
+    //#endregion
+
+    //#region sweep
+    //what is left of the triangulation between two strips
+    private static class Sweep {
+        private EdgeStore s;
+        private long hull;
+        private long[] ids; //global id of every vertex of s
+        private boolean[] written; //edge slots of s that are in the edge file already
+        private boolean[] keep; //vertices of open triangles and of the hull
+        private final EdgeWriter out;
+        private int peak;
+
+        Sweep(String edgesOut) throws IOException {
+            out = new EdgeWriter(edgesOut);
+        }
+
+        //adds the sorted distinct points of a strip, all points still to come have x >= next
+        void add(double[] xs, double[] ys, long offset, double next) throws IOException {
+            int m = xs.length;
+            if (s == null) {
+                s = new EdgeStore(xs, ys, null, EdgeStore.capacityFor(m));
+                ids = new long[m];
+                for (int i = 0; i < m; i++) ids[i] = offset + i;
+                written = new boolean[s.edgeSlots()];
+                hull = DelaunayTriangulation.computeRange(s, 0, m);
+            } else {
+                int kept = compact(xs, ys, offset);
+                long strip = DelaunayTriangulation.computeRange(s, kept, kept + m);
+                hull = DelaunayTriangulation.merge(s, hull, strip);
+            }
+            peak = Math.max(peak, s.vertexCount());
+            finish(next);
+        }
+
+        //new store with the kept vertices (keep and their neighbours, in id order) followed
+        //by the strip, the edges at a keep vertex are copied and every kept ring is rebuilt
+        //in its old order, so the new store holds the same faces around the kept vertices
+        private int compact(double[] xs, double[] ys, long offset) {
+            int n = s.vertexCount();
+            int slots = s.edgeSlots();
+            boolean[] kept = new boolean[n];
+            for (int i = 0; i < slots; i++) {
+                if (!s.isLive(i)) continue;
+                int a = s.orig(i << 2), b = s.dest(i << 2);
+                if (keep[a] || keep[b]) kept[a] = kept[b] = true;
+            }
+            int[] newId = new int[n];
+            int count = 0;
+            for (int v = 0; v < n; v++) newId[v] = kept[v] ? count++ : -1;
+
+            int m = xs.length;
+            double[] tx = new double[count + m];
+            double[] ty = new double[count + m];
+            long[] tIds = new long[count + m];
+            for (int v = 0; v < n; v++) {
+                if (newId[v] < 0) continue;
+                tx[newId[v]] = s.x(v);
+                ty[newId[v]] = s.y(v);
+                tIds[newId[v]] = ids[v];
+            }
+            System.arraycopy(xs, 0, tx, count, m);
+            System.arraycopy(ys, 0, ty, count, m);
+            for (int i = 0; i < m; i++) tIds[count + i] = offset + i;
+
+            EdgeStore t = new EdgeStore(tx, ty, null, EdgeStore.capacityFor(count + m));
+            int[] edgeMap = new int[slots];
+            int[] anyEdge = new int[n];
+            Arrays.fill(edgeMap, -1);
+            boolean[] tWritten = new boolean[t.edgeSlots()];
+            for (int i = 0; i < slots; i++) {
+                if (!s.isLive(i)) continue;
+                int a = s.orig(i << 2), b = s.dest(i << 2);
+                if (!keep[a] && !keep[b]) continue;
+                int q = t.makeEdge(newId[a], newId[b]);
+                edgeMap[i] = q;
+                if (written[i]) {
+                    if (EdgeStore.edgeOf(q) >= tWritten.length) tWritten = Arrays.copyOf(tWritten, t.edgeSlots());
+                    tWritten[EdgeStore.edgeOf(q)] = true;
+                }
+                anyEdge[a] = i << 2;
+                anyEdge[b] = (i << 2) ^ 2;
+            }
+
+            //splicing each kept quarter edge after the previous one lays the ring out in order
+            for (int v = 0; v < n; v++) {
+                if (!kept[v]) continue;
+                int first = anyEdge[v];
+                int previous = -1;
+                int e = first;
+                do {
+                    int q = edgeMap[EdgeStore.edgeOf(e)];
+                    if (q >= 0) {
+                        q |= e & 2;
+                        if (previous >= 0) t.splice(previous, q);
+                        previous = q;
+                    }
+                    e = s.oNext(e);
+                } while (e != first);
+            }
+
+            hull = DelaunayTriangulation.hull(map(edgeMap, DelaunayTriangulation.ldoOf(hull)),
+                map(edgeMap, DelaunayTriangulation.rdoOf(hull)));
+            s = t;
+            ids = tIds;
+            written = tWritten;
+            return count;
+        }
+
+        private static int map(int[] edgeMap, int e) {
+            return edgeMap[EdgeStore.edgeOf(e)] | (e & 2);
+        }
+
+        //writes the edges of every final triangle and marks the vertices that stay
+        private void finish(double next) throws IOException {
+            if (written.length < s.edgeSlots()) written = Arrays.copyOf(written, s.edgeSlots());
+            boolean last = next == Double.POSITIVE_INFINITY;
+            keep = new boolean[s.vertexCount()];
+            double[] x = s.xs, y = s.ys;
+
+            for (int i = 0; i < s.edgeSlots(); i++) {
+                if (!s.isLive(i)) continue;
+                for (int r = 0; r <= 2; r += 2) {
+                    //every triangle once, from its smallest quarter edge
+                    int q = (i << 2) | r;
+                    int e1 = s.lNext(q);
+                    int e2 = s.lNext(e1);
+                    if (s.lNext(e2) != q || e1 < q || e2 < q) continue;
+                    int a = s.orig(q), b = s.orig(e1), c = s.orig(e2);
+                    if (Predicates.orient2d(x[a], y[a], x[b], y[b], x[c], y[c]) <= 0) continue; //outer face
+
+                    if (last || closedBefore(x[a], y[a], x[b], y[b], x[c], y[c], next)) {
+                        write(q);
+                        write(e1);
+                        write(e2);
+                    } else {
+                        keep[a] = keep[b] = keep[c] = true;
+                    }
+                }
+            }
+
+            if (last) {
+                //edges outside every triangle, all of them when the points are on one line
+                for (int i = 0; i < s.edgeSlots(); i++) {
+                    if (s.isLive(i)) write(i << 2);
+                }
+                return;
+            }
+
+            //the hull vertices take part in the next merge
+            int ldo = DelaunayTriangulation.ldoOf(hull);
+            int e = ldo;
+            do {
+                keep[s.orig(e)] = keep[s.dest(e)] = true;
+                e = s.rNext(e);
+            } while (e != ldo);
+        }
+
+        private void write(int e) throws IOException {
+            int slot = EdgeStore.edgeOf(e);
+            if (written[slot]) return;
+            written[slot] = true;
+            out.edge(ids[s.orig(e)], ids[s.dest(e)]);
+        }
+
+        long close(long vertices) throws IOException {
+            return out.close(vertices);
+        }
+    }
+
+    //true if the circumcircle of the counterclockwise triangle abc ends strictly left of x = next,
+    //no later point can be inside it then; rounding only makes the test say no more often
+    static boolean closedBefore(double ax, double ay, double bx, double by, double cx, double cy, double next) {
+        double ux = bx - ax, uy = by - ay;
+        double vx = cx - ax, vy = cy - ay;
+        double b2 = ux * ux + uy * uy;
+        double c2 = vx * vx + vy * vy;
+        double d = 2 * (ux * vy - uy * vx);
+        if (!(d > 1e-6 * Math.sqrt(b2 * c2))) return false; //needle, the center is unreliable
+        double ox = (vy * b2 - uy * c2) / d;
+        double oy = (ux * c2 - vx * b2) / d;
+        double r = Math.sqrt(ox * ox + oy * oy);
+        double right = ax + ox + r;
+        return right + 1e-9 * (Math.abs(ax) + Math.abs(ox) + r) < next;
+    }
+    //#endregion
+
+    //#region output
+    //x and y of the distinct points strip by strip, joined into a point file at the end
+    private static class Points {
+        private final Path xFile, yFile;
+        private final ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long count;
+        private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        Points(Path dir) {
+            xFile = dir.resolve("xs.bin");
+            yFile = dir.resolve("ys.bin");
+        }
+
+        void append(double[] xs, double[] ys) throws IOException {
+            for (int i = 0; i < xs.length; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            append(xFile, xs);
+            append(yFile, ys);
+            count += xs.length;
+        }
+
+        private void append(Path file, double[] values) throws IOException {
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                for (int at = 0; at < values.length; ) {
+                    buf.clear();
+                    while (at < values.length && buf.hasRemaining()) buf.putDouble(values[at++]);
+                    buf.flip();
+                    while (buf.hasRemaining()) channel.write(buf);
+                }
+            }
+        }
+
+        long write(String filename) throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                BinaryPointFile.writeHeader(channel, count, true, minX, minY, maxX, maxY);
+                if (count > 0) {
+                    copy(xFile, channel);
+                    copy(yFile, channel);
+                }
+            }
+            return count;
+        }
+
+        private static void copy(Path file, FileChannel target) throws IOException {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = source.size();
+                for (long at = 0; at < size; ) at += source.transferTo(at, size - at, target);
+            }
+        }
+    }
+
+    //edge records behind a header that is filled in once the counts are known
+    private static class EdgeWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long count;
+
+        EdgeWriter(String filename) throws IOException {
+            channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(EDGE_HEADER_SIZE);
+        }
+
+        void edge(long a, long b) throws IOException {
+            if (buf.remaining() < 16) flush();
+            buf.putLong(a);
+            buf.putLong(b);
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        long close(long vertices) throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(EDGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, EDGE_MAGIC);
+                header.putInt(4, EDGE_VERSION);
+                header.putLong(16, count);
+                header.putLong(24, vertices);
+                for (long at = 0; header.hasRemaining(); ) at += channel.write(header, at);
+            } finally {
+                channel.close();
+            }
+            return count;
+        }
+    }
+
+    //edge file as pairs a0, b0, a1, b1, ... for files that fit in memory
+    public static long[] readEdges(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() < EDGE_HEADER_SIZE) throw new IOException(filename + " is too short for an edge file header");
+            ByteBuffer header = ByteBuffer.allocate(EDGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) throw new IOException(filename + " is truncated");
+            }
+            if (header.getInt(0) != EDGE_MAGIC) throw new IOException(filename + " is not an edge file");
+            int version = header.getInt(4);
+            if (version != EDGE_VERSION) throw new IOException("Unsupported edge file version " + version);
+            long count = header.getLong(16);
+            if (count < 0 || count > (Integer.MAX_VALUE - 8) / 2) throw new IOException("Bad edge count " + count);
+            if (channel.size() < EDGE_HEADER_SIZE + 16 * count) throw new IOException(filename + " is truncated");
+
+            long[] edges = new long[2 * (int) count];
+            channel.map(FileChannel.MapMode.READ_ONLY, EDGE_HEADER_SIZE, 16 * count)
+                .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(edges);
+            return edges;
+        }
+    }
+    //#endregion
+
+    private static double[] concat(double[] a, double[] b) {
+        if (a.length == 0) return b;
+        double[] joined = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: java OutOfCoreDelaunay <input> <points.bin> <edges.bin> [stripSize]");
+            return;
+        }
+        int stripSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STRIP_SIZE;
+        try {
+            Summary summary = triangulate(args[0], args[1], args[2], stripSize);
+            System.out.println(summary.vertices + " points, " + summary.edges + " edges, "
+                + summary.duplicates + " duplicates in " + summary.strips + " strips, at most "
+                + summary.peakVertices + " points in memory");
+        } catch (IOException e) {
+            System.err.println("An error occurred while triangulating the file.");
+            e.printStackTrace();
+        }
+    }
+}
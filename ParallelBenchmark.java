@@ -0,0 +1,62 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+//measures computeDelaunayParallel against the sequential computeDelaunay
+//for an increasing number of worker threads
+//usage: java ParallelBenchmark [points] [threshold]
+public class ParallelBenchmark {
+
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threshold = args.length > 1 ? Integer.parseInt(args[1]) : DelaunayTriangulation.DEFAULT_PARALLEL_THRESHOLD;
+
+        List<DelaunayTriangulation.Point> points = randomPoints(n, 42);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("--- Parallel Delaunay benchmark (N = " + n + ", threshold = " + threshold + ") ---");
+        double sequential = timeSequential(points);
+        System.out.printf("Sequential            : %.1f ms%n", sequential);
+
+        //1, 2, 4, ... and finally all cores
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            double parallel = timeParallel(points, threads, threshold);
+            System.out.printf("Parallel %3d threads  : %.1f ms  (speedup %.2fx)%n", threads, parallel, sequential / parallel);
+            if (threads == cores) break;
+        }
+    }
+
+    private static double timeSequential(List<DelaunayTriangulation.Point> points) {
+        for (int i = 0; i < WARMUP_RUNS; i++) DelaunayTriangulation.computeDelaunay(points);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) DelaunayTriangulation.computeDelaunay(points);
+        return (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+    }
+
+    private static double timeParallel(List<DelaunayTriangulation.Point> points, int threads, int threshold) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) DelaunayTriangulation.computeDelaunayParallel(points, pool, threshold);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_RUNS; i++) DelaunayTriangulation.computeDelaunayParallel(points, pool, threshold);
+            return (System.nanoTime() - start) / 1e6 / MEASURED_RUNS;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<DelaunayTriangulation.Point> randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        List<DelaunayTriangulation.Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new DelaunayTriangulation.Point(random.nextDouble() * 1_000_000, random.nextDouble() * 1_000_000));
+        }
+        return points;
+    }
+}
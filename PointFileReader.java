@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//reads "(x,y)" point files straight from a memory mapped file
+//the file is cut into chunks on line boundaries, chunks are parsed in parallel
+//and every number is decoded from the bytes, without building a String per line
+public class PointFileReader {
+
+    private static final long MIN_CHUNK = 1 << 20;
+    private static final long MAX_CHUNK = 1 << 28;
+    private static final int BOUNDARY_WINDOW = 1 << 16;
+
+    //exact powers of ten, the products below are correctly rounded up to 10^22
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    //returns the points as x0, y0, x1, y1, ...
+    //lines that are not two numbers are skipped, the ones with bad numbers are reported like before
+    public static double[] readPacked(String filename) throws IOException {
+        long start = Metrics.start();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            chunks.parallelStream().forEach(Chunk::parse);
+
+            int total = 0;
+            for (Chunk c : chunks) total += c.count;
+
+            double[] xy = new double[total];
+            int at = 0;
+            for (Chunk c : chunks) {
+                System.arraycopy(c.xy, 0, xy, at, c.count);
+                at += c.count;
+                for (String line : c.invalid) System.out.println("Skipping invalid line: " + line);
+            }
+            return xy;
+        } finally {
+            Metrics.stop(Metrics.Phase.PARSE, start);
+        }
+    }
+
+    //receives a point file one piece at a time, x0, y0, x1, y1, ... in the first count values of xy
+    interface PackedConsumer {
+        void accept(double[] xy, int count) throws IOException;
+    }
+
+    //same parsing as readPacked, chunk after chunk, so the points never have to fit in memory at once
+    static void forEachChunk(String filename, PackedConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            for (int i = 0; i < chunks.size(); i++) {
+                Chunk c = chunks.get(i);
+                chunks.set(i, null); //parsed chunks are dropped as soon as they are handed over
+                c.parse();
+                for (String line : c.invalid) System.out.println("Skipping invalid line: " + line);
+                consumer.accept(c.xy, c.count);
+            }
+        }
+    }
+
+    public static List<DelaunayTriangulation.Point> toPoints(double[] xy) {
+        List<DelaunayTriangulation.Point> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i + 1 < xy.length; i += 2) {
+            points.add(new DelaunayTriangulation.Point(xy[i], xy[i + 1]));
+        }
+        return points;
+    }
+
+    public static List<DelaunayTriangulation.Point> toPoints(double[] xs, double[] ys) {
+        List<DelaunayTriangulation.Point> points = new ArrayList<>(xs.length);
+        for (int i = 0; i < xs.length; i++) {
+            points.add(new DelaunayTriangulation.Point(xs[i], ys[i]));
+        }
+        return points;
+    }
+
+    //#region chunking
+    private static List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunkSize = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (4L * parallelism)));
+
+        List<Chunk> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+            if (end - start > Integer.MAX_VALUE) throw new IOException("Line longer than 2GB at offset " + start);
+            chunks.add(new Chunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+            start = end;
+        }
+        return chunks;
+    }
+
+    //first byte after the next '\n' at or after pos
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        while (pos < size) {
+            int window = (int) Math.min(BOUNDARY_WINDOW, size - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, window);
+            for (int i = 0; i < window; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += window;
+        }
+        return size;
+    }
+    //#endregion
+
+    //#region parsing
+    private static class Chunk {
+        private final MappedByteBuffer buf;
+        private double[] xy = new double[64];
+        private int count;
+        private final List<String> invalid = new ArrayList<>();
+        private boolean badNumber;
+
+        Chunk(MappedByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        void parse() {
+            int limit = buf.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buf.get(lineEnd) != '\n') lineEnd++;
+                parseLine(lineStart, lineEnd);
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        //same rules as the old readPointsFromFile: trim, drop the parentheses,
+        //split on ',' (trailing empty fields ignored) and expect two numbers
+        //bytes are signed, & 0xff keeps the non ascii ones (>= 0x80) from passing for blanks
+        private void parseLine(int from, int to) {
+            while (from < to && (buf.get(from) & 0xff) <= ' ') from++;
+            while (to > from && (buf.get(to - 1) & 0xff) <= ' ') to--;
+            if (from == to) return;
+
+            int comma = -1;
+            int fields = 0; //fields up to the last one that is not empty
+            int field = 0;
+            boolean fieldEmpty = true;
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b == ',') {
+                    if (field == 0) comma = i;
+                    field++;
+                    fieldEmpty = true;
+                } else if (b != '(' && b != ')' && fieldEmpty) {
+                    fieldEmpty = false;
+                    fields = field + 1;
+                }
+            }
+            if (fields != 2) return;
+
+            int secondEnd = to;
+            for (int i = comma + 1; i < to; i++) {
+                if (buf.get(i) == ',') {
+                    secondEnd = i;
+                    break;
+                }
+            }
+
+            badNumber = false;
+            double x = parseNumber(from, comma);
+            double y = parseNumber(comma + 1, secondEnd);
+            if (badNumber) {
+                invalid.add(text(from, to, false));
+                return;
+            }
+            add(x, y);
+        }
+
+        private void add(double x, double y) {
+            if (count + 2 > xy.length) xy = Arrays.copyOf(xy, xy.length * 2);
+            xy[count++] = x;
+            xy[count++] = y;
+        }
+
+        //plain decimals are decoded here, anything else goes through Double.parseDouble
+        //sets badNumber if the field is not a number
+        private double parseNumber(int from, int to) {
+            int i = skipBlank(from, to, 1);
+            int end = skipBlank(to - 1, from - 1, -1) + 1;
+
+            boolean negative = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i = skipParens(i + 1, end);
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean dot = false;
+            boolean any = false;
+            while (i < end) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    any = true;
+                    if (mantissa != 0 || b != '0') digits++;
+                    if (digits > 18) return slowParse(from, to);
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (dot) scale--;
+                } else if (b == '.' && !dot) {
+                    dot = true;
+                } else if (b == '(' || b == ')') {
+                    //removed like in the text based reader
+                } else {
+                    break;
+                }
+                i++;
+            }
+            if (!any) return slowParse(from, to);
+
+            if (i < end && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+                i = skipParens(i + 1, end);
+                boolean negativeExp = false;
+                if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                    negativeExp = buf.get(i) == '-';
+                    i = skipParens(i + 1, end);
+                }
+                int exp = 0;
+                boolean expDigits = false;
+                while (i < end) {
+                    byte b = buf.get(i);
+                    if (b >= '0' && b <= '9') {
+                        expDigits = true;
+                        if (exp > 10_000) return slowParse(from, to);
+                        exp = exp * 10 + (b - '0');
+                    } else if (b != '(' && b != ')') {
+                        break;
+                    }
+                    i++;
+                }
+                if (!expDigits) return slowParse(from, to);
+                scale += negativeExp ? -exp : exp;
+            }
+            if (i != end) return slowParse(from, to);
+
+            double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else if (mantissa < (1L << 53) && scale >= -22 && scale <= 22) {
+                value = scale >= 0 ? mantissa * POW10[scale] : mantissa / POW10[-scale];
+            } else {
+                return slowParse(from, to);
+            }
+            return negative ? -value : value;
+        }
+
+        private double slowParse(int from, int to) {
+            try {
+                return Double.parseDouble(text(from, to, true));
+            } catch (NumberFormatException ex) {
+                badNumber = true;
+                return 0;
+            }
+        }
+
+        private int skipBlank(int i, int stop, int step) {
+            while (i != stop) {
+                byte b = buf.get(i);
+                if ((b & 0xff) > ' ' && b != '(' && b != ')') break;
+                i += step;
+            }
+            return i;
+        }
+
+        private int skipParens(int i, int end) {
+            while (i < end && (buf.get(i) == '(' || buf.get(i) == ')')) i++;
+            return i;
+        }
+
+        //text of the range without parentheses, only built for the rare slow cases
+        private String text(int from, int to, boolean trim) {
+            byte[] bytes = new byte[to - from];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b != '(' && b != ')') bytes[n++] = b;
+            }
+            String text = new String(bytes, 0, n, StandardCharsets.UTF_8);
+            return trim ? text.trim() : text;
+        }
+    }
+    //#endregion
+}
@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//point location on a triangulation, which may change between queries
+//every query walks from the closest of the previous answer and a small random sample of
+//edges (jump and walk, Mücke, Saias, Zhu): with about n^(1/3) sample edges an unrelated
+//query walks about n^(1/3) triangles instead of sqrt(n), queries that come in a
+//spatially coherent order (PointSort.hilbertOrder) start next to the previous answer
+//a locator keeps state between queries, use one per thread
+public class PointLocator {
+
+    private final DelaunayTriangulation.EdgePair triangulation;
+    private final SplittableRandom random;
+    private final boolean sampled;
+    private int[] sample = new int[0];
+    private int previous = -1;
+
+    public PointLocator(DelaunayTriangulation.EdgePair triangulation) {
+        this(triangulation, true, 1);
+    }
+
+    //without the sample every walk starts at the previous answer, which is the cheapest
+    //choice when the queries are sorted along a curve already
+    public PointLocator(DelaunayTriangulation.EdgePair triangulation, boolean sampled, long seed) {
+        this.triangulation = triangulation;
+        this.sampled = sampled;
+        this.random = new SplittableRandom(seed);
+    }
+
+    //an edge whose closed left triangle holds p, null if p is outside the hull
+    public DelaunayTriangulation.QuarterEdge locate(DelaunayTriangulation.Point p) {
+        int e = locate(p.x, p.y);
+        return e < 0 ? null : new DelaunayTriangulation.QuarterEdge(triangulation.ldo.store(), e);
+    }
+
+    //same answer as a quarter edge index, ~h for a hull edge h that has the point strictly
+    //on its outer side (~ldo while all points are on one line)
+    public int locate(double x, double y) {
+        int e = DelaunayTriangulation.locatePoint(triangulation, x, y, start(x, y));
+        previous = e < 0 ? ~e : e;
+        return e;
+    }
+
+    //the live candidate whose origin is closest to (x, y)
+    private int start(double x, double y) {
+        EdgeStore s = triangulation.ldo.store();
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        if (previous >= 0 && s.isLive(EdgeStore.edgeOf(previous))) {
+            best = previous;
+            bestDistance = distance(s, previous, x, y);
+        }
+        if (!sampled) return best;
+
+        refreshSample(s);
+        for (int i = 0; i < sample.length; i++) {
+            int e = sample[i];
+            if (!s.isLive(EdgeStore.edgeOf(e))) {
+                e = randomEdge(s);
+                if (e < 0) continue;
+                sample[i] = e;
+            }
+            double d = distance(s, e, x, y);
+            if (d < bestDistance) {
+                best = e;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    //the sample follows the size of the triangulation, cbrt(n) edges
+    private void refreshSample(EdgeStore s) {
+        int size = (int) Math.cbrt(s.liveVertexCount());
+        if (size <= sample.length) return;
+        int[] grown = new int[size];
+        int count = 0;
+        for (int e : sample) grown[count++] = e;
+        while (count < size) {
+            int e = randomEdge(s);
+            if (e < 0) break;
+            grown[count++] = e;
+        }
+        sample = count == size ? grown : Arrays.copyOf(grown, count);
+    }
+
+    //a random live quarter edge, -1 if a few tries find none
+    private int randomEdge(EdgeStore s) {
+        int slots = s.edgeSlots();
+        for (int tries = 0; tries < 32; tries++) {
+            int edge = random.nextInt(slots);
+            if (s.isLive(edge)) return (edge << 2) | (random.nextBoolean() ? 2 : 0);
+        }
+        return -1;
+    }
+
+    private static double distance(EdgeStore s, int e, double x, double y) {
+        int v = s.orig(e);
+        double dx = s.x(v) - x;
+        double dy = s.y(v) - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+//sort and dedup stage of the triangulation, on packed coordinates
+//points are ordered by x and then by y with an LSD radix sort over order preserving
+//long encodings of the doubles, after that duplicates are neighbours in the sorted order
+public class PointSort {
+
+    private static final int DIGIT_BITS = 8;
+    private static final int BUCKETS = 1 << DIGIT_BITS;
+    //below this size the parallel passes cost more than they save
+    private static final int PARALLEL_MIN = 1 << 16;
+
+    public static class Result {
+        public final double[] xs, ys; //sorted distinct points
+        public final int[] source; //position of every sorted point in the input
+        public final int duplicates; //points dropped because they were already there
+
+        Result(double[] xs, double[] ys, int[] source, int duplicates) {
+            this.xs = xs;
+            this.ys = ys;
+            this.source = source;
+            this.duplicates = duplicates;
+        }
+    }
+
+    public static Result sortUnique(double[] xs, double[] ys, boolean parallel) {
+        long start = Metrics.start();
+        int n = xs.length;
+        int blocks = parallel && n >= PARALLEL_MIN ? 4 * Runtime.getRuntime().availableProcessors() : 1;
+
+        int[] order = new int[n];
+        int[] orderTmp = new int[n];
+        long[] keys = new long[n];
+        long[] keysTmp = new long[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+
+        //LSD: by y first, then a stable pass by x
+        for (int i = 0; i < n; i++) keys[i] = key(ys[i]);
+        radixSort(keys, order, keysTmp, orderTmp, blocks);
+        for (int i = 0; i < n; i++) keys[i] = key(xs[order[i]]);
+        radixSort(keys, order, keysTmp, orderTmp, blocks);
+
+        //Delete duplicates - equal points are now next to each other
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            int p = order[i];
+            if (unique > 0) {
+                int q = order[unique - 1];
+                if (keys[i] == key(xs[q]) && Double.doubleToLongBits(ys[p]) == Double.doubleToLongBits(ys[q])) continue;
+            }
+            order[unique++] = p;
+        }
+
+        double[] sortedX = new double[unique];
+        double[] sortedY = new double[unique];
+        int[] source = new int[unique];
+        for (int i = 0; i < unique; i++) {
+            sortedX[i] = xs[order[i]];
+            sortedY[i] = ys[order[i]];
+            source[i] = order[i];
+        }
+        Metrics.stop(Metrics.Phase.SORT_DEDUP, start);
+        return new Result(sortedX, sortedY, source, n - unique);
+    }
+
+    //sorts values by their unsigned keys, stable, both arrays are reordered
+    static void sortByKey(long[] keys, int[] values, boolean parallel) {
+        int n = keys.length;
+        int blocks = parallel && n >= PARALLEL_MIN ? 4 * Runtime.getRuntime().availableProcessors() : 1;
+        radixSort(keys, values, new long[n], new int[n], blocks);
+    }
+
+    //#region space filling curve orders
+    private static final int CURVE_BITS = 29; //per axis, 58 bit curve index
+    private static final int ROUND_SHIFT = 2 * CURVE_BITS;
+
+    //order of the points along a Hilbert curve over their bounding box, points next to each
+    //other in the order are close in the plane, so walks from one to the next are short
+    public static int[] hilbertOrder(double[] xs, double[] ys) {
+        long[] keys = hilbertKeys(xs, ys);
+        int[] order = identity(keys.length);
+        sortByKey(keys, order, true);
+        return order;
+    }
+
+    //biased randomized insertion order (Amenta, Choi, Rote): the points are dealt into rounds
+    //that double in size, a point lands in the last round with probability 1/2, in the one
+    //before with 1/4 and so on, and every round is sorted along the Hilbert curve
+    //randomness between rounds keeps the expected flip count of a random order, the curve
+    //inside a round keeps consecutive points close
+    public static int[] brioOrder(double[] xs, double[] ys, long seed) {
+        int n = xs.length;
+        long[] keys = hilbertKeys(xs, ys);
+        int rounds = 64 - Long.numberOfLeadingZeros(n); //the first round has about one point
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            int level = Math.min(Long.numberOfTrailingZeros(random.nextLong()), rounds);
+            keys[i] |= (long) (rounds - level) << ROUND_SHIFT;
+        }
+        int[] order = identity(n);
+        sortByKey(keys, order, true);
+        return order;
+    }
+
+    //the bounding box is scaled by the same factor on both axes, so the curve cells are squares
+    private static long[] hilbertKeys(double[] xs, double[] ys) {
+        int n = xs.length;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        double span = Math.max(maxX - minX, maxY - minY);
+        double scale = span > 0 ? ((1 << CURVE_BITS) - 1) / span : 0;
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = hilbertIndex((long) ((xs[i] - minX) * scale), (long) ((ys[i] - minY) * scale));
+        }
+        return keys;
+    }
+
+    //position of the cell (x, y) on the curve, one quadrant per bit from the top
+    static long hilbertIndex(long x, long y) {
+        long side = 1L << CURVE_BITS;
+        long d = 0;
+        for (long half = side >>> 1; half > 0; half >>>= 1) {
+            int rx = (x & half) != 0 ? 1 : 0;
+            int ry = (y & half) != 0 ? 1 : 0;
+            d += half * half * ((3 * rx) ^ ry);
+            //turn the quadrant so the curve inside it starts and ends at the right corners
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                long t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private static int[] identity(int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        return order;
+    }
+    //#endregion
+
+    //unsigned order of the key is the order of Double.compare (-0.0 before 0.0, NaN last)
+    static long key(double d) {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    //stable sort of keys (unsigned) carrying order along, one pass per byte
+    //passes where every key has the same byte are skipped
+    private static void radixSort(long[] keys, int[] order, long[] keysTmp, int[] orderTmp, int blocks) {
+        int n = keys.length;
+        int blockSize = (n + blocks - 1) / Math.max(blocks, 1);
+        int[][] counts = new int[blocks][BUCKETS];
+
+        long[] src = keys, dst = keysTmp;
+        int[] srcOrder = order, dstOrder = orderTmp;
+
+        for (int shift = 0; shift < 64; shift += DIGIT_BITS) {
+            final int s = shift;
+            final long[] from = src;
+            run(blocks, b -> {
+                int[] c = counts[b];
+                Arrays.fill(c, 0);
+                int end = Math.min(n, (b + 1) * blockSize);
+                for (int i = b * blockSize; i < end; i++) c[(int) (from[i] >>> s) & (BUCKETS - 1)]++;
+            });
+
+            //turn the counts into start offsets, bucket by bucket and block by block
+            int total = 0;
+            boolean trivial = false;
+            for (int d = 0; d < BUCKETS; d++) {
+                int bucket = 0;
+                for (int b = 0; b < blocks; b++) {
+                    int c = counts[b][d];
+                    counts[b][d] = total;
+                    total += c;
+                    bucket += c;
+                }
+                if (bucket == n) trivial = true;
+            }
+            if (trivial) continue;
+
+            final long[] to = dst;
+            final int[] fromOrder = srcOrder, toOrder = dstOrder;
+            run(blocks, b -> {
+                int[] c = counts[b];
+                int end = Math.min(n, (b + 1) * blockSize);
+                for (int i = b * blockSize; i < end; i++) {
+                    int at = c[(int) (from[i] >>> s) & (BUCKETS - 1)]++;
+                    to[at] = from[i];
+                    toOrder[at] = fromOrder[i];
+                }
+            });
+
+            src = to;
+            dst = from;
+            srcOrder = toOrder;
+            dstOrder = fromOrder;
+        }
+
+        if (src != keys) {
+            System.arraycopy(src, 0, keys, 0, n);
+            System.arraycopy(srcOrder, 0, order, 0, n);
+        }
+    }
+
+    private static void run(int blocks, IntConsumer block) {
+        if (blocks == 1) block.accept(0);
+        else IntStream.range(0, blocks).parallel().forEach(block);
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.concurrent.atomic.LongAdder;
+
+//robust orientation and in-circle tests, after Shewchuk's adaptive predicates
+//the plain double expression is used when its static error bound proves the sign,
+//otherwise the determinant is recomputed exactly with floating point expansions
+public class Predicates {
+
+    private static final double EPS = Math.ulp(1.0) / 2; //2^-53
+    private static final double SPLITTER = 134217729.0; //2^27 + 1
+    private static final double CCW_BOUND = (3.0 + 16.0 * EPS) * EPS;
+    private static final double ICC_BOUND = (10.0 + 96.0 * EPS) * EPS;
+
+    //how often the fast path could not decide, only the rare exact path counts
+    private static final LongAdder orientFallbacks = new LongAdder();
+    private static final LongAdder inCircleFallbacks = new LongAdder();
+
+    //#region predicates
+    //positive if a, b, c are counterclockwise, negative if clockwise, zero if collinear
+    public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+        Metrics.count(Metrics.Counter.ORIENT);
+        double detLeft = (ax - cx) * (by - cy);
+        double detRight = (ay - cy) * (bx - cx);
+        double det = detLeft - detRight;
+
+        double detSum;
+        if (detLeft > 0) {
+            if (detRight <= 0) return det;
+            detSum = detLeft + detRight;
+        } else if (detLeft < 0) {
+            if (detRight >= 0) return det;
+            detSum = -detLeft - detRight;
+        } else {
+            return det;
+        }
+
+        double bound = CCW_BOUND * detSum;
+        if (det >= bound || -det >= bound) return det;
+
+        orientFallbacks.increment();
+        return orient2dExact(ax, ay, bx, by, cx, cy);
+    }
+
+    //positive if d lies inside the circle through a, b, c (counterclockwise), zero if on it
+    public static double inCircle(double ax, double ay, double bx, double by,
+                                  double cx, double cy, double dx, double dy) {
+        Metrics.count(Metrics.Counter.IN_CIRCLE);
+        double adx = ax - dx;
+        double ady = ay - dy;
+        double bdx = bx - dx;
+        double bdy = by - dy;
+        double cdx = cx - dx;
+        double cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy;
+        double cdxbdy = cdx * bdy;
+        double alift = adx * adx + ady * ady;
+
+        double cdxady = cdx * ady;
+        double adxcdy = adx * cdy;
+        double blift = bdx * bdx + bdy * bdy;
+
+        double adxbdy = adx * bdy;
+        double bdxady = bdx * ady;
+        double clift = cdx * cdx + cdy * cdy;
+
+        double det = alift * (bdxcdy - cdxbdy)
+                   + blift * (cdxady - adxcdy)
+                   + clift * (adxbdy - bdxady);
+
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+                         + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+                         + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+        double bound = ICC_BOUND * permanent;
+        if (det > bound || -det > bound) return det;
+
+        inCircleFallbacks.increment();
+        return inCircleExact(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+    //#endregion
+
+    //#region counters
+    public static long orientFallbacks() { return orientFallbacks.sum(); }
+    public static long inCircleFallbacks() { return inCircleFallbacks.sum(); }
+
+    public static void resetCounters() {
+        orientFallbacks.reset();
+        inCircleFallbacks.reset();
+    }
+    //#endregion
+
+    //#region exact evaluation
+    //same formulas on expansions, the differences are exact two-component expansions
+    static double orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+        double[] left = product(diff(ax, cx), diff(by, cy));
+        double[] right = product(diff(ay, cy), diff(bx, cx));
+        return sign(sum(left, negate(right)));
+    }
+
+    static double inCircleExact(double ax, double ay, double bx, double by,
+                                double cx, double cy, double dx, double dy) {
+        double[] adx = diff(ax, dx), ady = diff(ay, dy);
+        double[] bdx = diff(bx, dx), bdy = diff(by, dy);
+        double[] cdx = diff(cx, dx), cdy = diff(cy, dy);
+
+        double[] alift = sum(product(adx, adx), product(ady, ady));
+        double[] blift = sum(product(bdx, bdx), product(bdy, bdy));
+        double[] clift = sum(product(cdx, cdx), product(cdy, cdy));
+
+        double[] bcdet = sum(product(bdx, cdy), negate(product(cdx, bdy)));
+        double[] cadet = sum(product(cdx, ady), negate(product(adx, cdy)));
+        double[] abdet = sum(product(adx, bdy), negate(product(bdx, ady)));
+
+        double[] det = sum(sum(product(alift, bcdet), product(blift, cadet)), product(clift, abdet));
+        return sign(det);
+    }
+    //#endregion
+
+    //#region expansion arithmetic
+    //an expansion is a sum of non overlapping doubles, smallest magnitude first, zeros removed
+
+    private static double[] diff(double a, double b) {
+        double x = a - b;
+        double tail = twoSumTail(a, -b, x);
+        return tail == 0 ? new double[] { x } : new double[] { tail, x };
+    }
+
+    //adds b to the expansion e
+    private static double[] grow(double[] e, double b) {
+        double[] h = new double[e.length + 1];
+        int n = 0;
+        double q = b;
+        for (double ei : e) {
+            double sum = q + ei;
+            double tail = twoSumTail(q, ei, sum);
+            q = sum;
+            if (tail != 0) h[n++] = tail;
+        }
+        if (q != 0 || n == 0) h[n++] = q;
+        return trim(h, n);
+    }
+
+    private static double[] sum(double[] e, double[] f) {
+        double[] h = e;
+        for (double fi : f) h = grow(h, fi);
+        return h;
+    }
+
+    //multiplies the expansion e by b
+    private static double[] scale(double[] e, double b) {
+        double[] h = new double[2 * e.length];
+        int n = 0;
+        double q = e[0] * b;
+        double tail = twoProductTail(e[0], b, q);
+        if (tail != 0) h[n++] = tail;
+        for (int i = 1; i < e.length; i++) {
+            double product = e[i] * b;
+            double productTail = twoProductTail(e[i], b, product);
+            double sum = q + productTail;
+            tail = twoSumTail(q, productTail, sum);
+            if (tail != 0) h[n++] = tail;
+            q = product + sum;
+            tail = sum - (q - product);
+            if (tail != 0) h[n++] = tail;
+        }
+        if (q != 0 || n == 0) h[n++] = q;
+        return trim(h, n);
+    }
+
+    private static double[] product(double[] e, double[] f) {
+        double[] h = scale(e, f[0]);
+        for (int i = 1; i < f.length; i++) h = sum(h, scale(e, f[i]));
+        return h;
+    }
+
+    private static double[] negate(double[] e) {
+        double[] h = new double[e.length];
+        for (int i = 0; i < e.length; i++) h[i] = -e[i];
+        return h;
+    }
+
+    //the largest component decides the sign
+    private static double sign(double[] e) {
+        return e[e.length - 1];
+    }
+
+    private static double[] trim(double[] h, int n) {
+        if (n == h.length) return h;
+        double[] out = new double[n];
+        System.arraycopy(h, 0, out, 0, n);
+        return out;
+    }
+
+    //error of the rounded sum x = a + b
+    private static double twoSumTail(double a, double b, double x) {
+        double bVirtual = x - a;
+        double aVirtual = x - bVirtual;
+        double bRound = b - bVirtual;
+        double aRound = a - aVirtual;
+        return aRound + bRound;
+    }
+
+    //error of the rounded product x = a * b, Dekker's split
+    private static double twoProductTail(double a, double b, double x) {
+        double c = SPLITTER * a;
+        double aHi = c - (c - a);
+        double aLo = a - aHi;
+        c = SPLITTER * b;
+        double bHi = c - (c - b);
+        double bLo = b - bHi;
+        double err1 = x - aHi * bHi;
+        double err2 = err1 - aLo * bHi;
+        double err3 = err2 - aHi * bLo;
+        return aLo * bLo - err3;
+    }
+    //#endregion
+}
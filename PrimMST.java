@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Prim's algorithm on the CSR view of the triangulation, with an indexed binary heap
+//keyed by vertex, so a cheaper connection is a decrease-key instead of a new heap entry
+public class PrimMST {
+
+    public static MST.MSTResult computeMST(DelaunayTriangulation.EdgePair hull, double alpha) {
+        return computeMST(CSRGraph.from(hull), alpha);
+    }
+
+    public static MST.MSTResult computeMST(CSRGraph graph, double alpha) {
+        int n = graph.vertexCount();
+        double[] dist = new double[n];
+        int[] via = new int[n]; //CSR entry that connects the vertex to the tree
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(via, -1);
+
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        int[] tree = new int[Math.max(n - 1, 0)];
+        double[] treeWeights = new double[tree.length];
+        int treeEdges = 0;
+
+        //restarting from every unreached vertex gives a forest on disconnected input
+        for (int start = 0; start < n; start++) {
+            if (done[start]) continue;
+            dist[start] = 0;
+            heap.push(start, 0);
+
+            while (!heap.isEmpty()) {
+                int v = heap.pop();
+                done[v] = true;
+                if (via[v] >= 0) {
+                    tree[treeEdges] = graph.quarterEdges[via[v]];
+                    treeWeights[treeEdges] = graph.weights[via[v]];
+                    treeEdges++;
+                }
+
+                for (int at = graph.offsets[v]; at < graph.offsets[v + 1]; at++) {
+                    int u = graph.neighbors[at];
+                    double w = graph.weights[at];
+                    if (done[u] || w >= dist[u]) continue;
+                    dist[u] = w;
+                    via[u] = at; //the edge from the tree vertex v to u
+                    if (heap.contains(u)) heap.decrease(u, w);
+                    else heap.push(u, w);
+                }
+            }
+        }
+
+        //alpha is checked on the weights in ascending order, like computeMST does
+        int[] order = new int[treeEdges];
+        long[] keys = new long[treeEdges];
+        for (int i = 0; i < treeEdges; i++) {
+            order[i] = i;
+            keys[i] = Double.doubleToRawLongBits(treeWeights[i]);
+        }
+        PointSort.sortByKey(keys, order, false);
+
+        List<DelaunayTriangulation.QuarterEdge> mstEdges = new ArrayList<>(treeEdges);
+        double sumWeight = 0;
+        for (int k = 0; k < treeEdges; k++) {
+            int i = order[k];
+            if (treeWeights[i] > alpha) {
+                MST.MSTResult result = new MST.MSTResult(mstEdges, sumWeight);
+                result.alphaProperty = false;
+                return result;
+            }
+            mstEdges.add(new DelaunayTriangulation.QuarterEdge(graph.store, tree[i]));
+            sumWeight += treeWeights[i];
+        }
+        return new MST.MSTResult(mstEdges, sumWeight);
+    }
+
+    //binary min-heap of vertex ids, pos[v] is the place of v in the heap or -1
+    private static class IndexedMinHeap {
+        private final int[] heap;
+        private final int[] pos;
+        private final double[] key;
+        private int size;
+
+        IndexedMinHeap(int capacity) {
+            heap = new int[capacity];
+            pos = new int[capacity];
+            key = new double[capacity];
+            Arrays.fill(pos, -1);
+        }
+
+        boolean isEmpty() { return size == 0; }
+        boolean contains(int v) { return pos[v] >= 0; }
+
+        void push(int v, double k) {
+            key[v] = k;
+            heap[size] = v;
+            pos[v] = size;
+            siftUp(size++);
+        }
+
+        void decrease(int v, double k) {
+            key[v] = k;
+            siftUp(pos[v]);
+        }
+
+        int pop() {
+            int top = heap[0];
+            pos[top] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                pos[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (key[heap[parent]] <= key[v]) break;
+                heap[i] = heap[parent];
+                pos[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            pos[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) child++;
+                if (key[heap[child]] >= key[v]) break;
+                heap[i] = heap[child];
+                pos[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            pos[v] = i;
+        }
+    }
+}
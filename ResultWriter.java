@@ -0,0 +1,160 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//streams edges through one large buffer instead of a printf per edge
+//
+//  text:   "(x1,y1)(x2,y2)" per line, the format of the reference outputs in test/
+//  binary: header (32 bytes): magic "DTRE", version, reserved, edge count (long), reserved
+//          records: x1, y1, x2, y2 (doubles), little endian
+//
+//whole numbers, the usual case for point files, are formatted digit by digit into the
+//buffer, any other value is written like Double.toString so it reads back exactly
+public class ResultWriter implements Closeable {
+
+    public enum Format { TEXT, BINARY }
+
+    public static final int MAGIC = 0x45525444; //"DTRE" read as little endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+
+    private static final int BUFFER = 1 << 20;
+    private static final int MAX_RECORD = 128; //longest text line, four numbers of at most 25 chars
+
+    //below 2^53 every whole double is a long that prints exactly
+    private static final double EXACT_LONG = 9007199254740992.0;
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final OutputStream stream; //stdout and the like are flushed on close but stay open
+    private final ByteBuffer buf;
+    private final byte[] digits = new byte[20];
+    private long count;
+
+    private ResultWriter(WritableByteChannel channel, Format format, OutputStream stream) {
+        this.channel = channel;
+        this.format = format;
+        this.stream = stream;
+        this.buf = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static ResultWriter open(String filename, Format format) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ResultWriter writer = new ResultWriter(channel, format, null);
+        if (format == Format.BINARY) channel.position(HEADER_SIZE); //the header is written once the count is known
+        return writer;
+    }
+
+    //text to a stream that stays open, e.g. System.out
+    public static ResultWriter text(OutputStream out) {
+        return new ResultWriter(Channels.newChannel(out), Format.TEXT, out);
+    }
+
+    public long count() { return count; }
+
+    //#region edges
+    public void edge(double x1, double y1, double x2, double y2) throws IOException {
+        if (buf.remaining() < MAX_RECORD) drain();
+        if (format == Format.BINARY) {
+            buf.putDouble(x1);
+            buf.putDouble(y1);
+            buf.putDouble(x2);
+            buf.putDouble(y2);
+        } else {
+            buf.put((byte) '(');
+            number(x1);
+            buf.put((byte) ',');
+            number(y1);
+            buf.put((byte) ')');
+            buf.put((byte) '(');
+            number(x2);
+            buf.put((byte) ',');
+            number(y2);
+            buf.put((byte) ')');
+            buf.put((byte) '\n');
+        }
+        count++;
+    }
+
+    public void edge(EdgeStore store, int e) throws IOException {
+        int a = store.orig(e), b = store.dest(e);
+        edge(store.x(a), store.y(a), store.x(b), store.y(b));
+    }
+
+    public void edges(MST.MSTResult result) throws IOException {
+        for (DelaunayTriangulation.QuarterEdge e : result.edges) edge(e.store(), e.index());
+    }
+
+    //the whole tree, shortest edge first
+    public void edges(MST.Tree tree) throws IOException {
+        for (int e : tree.edges) edge(tree.store, e);
+    }
+
+    //every triangulation edge once, in slot order
+    public void edges(DelaunayTriangulation.EdgePair triangulation) throws IOException {
+        EdgeStore store = triangulation.ldo.store();
+        for (int i = 0; i < store.edgeSlots(); i++) {
+            if (store.isLive(i)) edge(store, i << 2);
+        }
+    }
+    //#endregion
+
+    //#region formatting
+    private void number(double v) {
+        //-0.0 is whole too, but only Double.toString keeps its sign
+        if (v == Math.rint(v) && Math.abs(v) < EXACT_LONG && Double.doubleToRawLongBits(v) != Long.MIN_VALUE) {
+            long l = (long) v;
+            if (l < 0) {
+                buf.put((byte) '-');
+                l = -l;
+            }
+            int at = digits.length;
+            do {
+                digits[--at] = (byte) ('0' + l % 10);
+                l /= 10;
+            } while (l != 0);
+            buf.put(digits, at, digits.length - at);
+        } else {
+            buf.put(Double.toString(v).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+    //#endregion
+
+    private void drain() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+
+    public void flush() throws IOException {
+        drain();
+        if (stream != null) stream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            if (format == Format.BINARY && channel instanceof FileChannel) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putLong(16, count);
+                FileChannel file = (FileChannel) channel;
+                for (long at = 0; header.hasRemaining(); ) at += file.write(header, at);
+            }
+        } finally {
+            if (stream == null) channel.close();
+            else stream.flush();
+        }
+    }
+}
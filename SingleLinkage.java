@@ -0,0 +1,131 @@
+import java.util.Arrays;
+
+//single-linkage clustering read off the euclidean MST
+//two points are in one cluster at distance d when a path of edges no longer than d joins
+//them, and the MST holds such a path whenever any graph does, so the Kruskal order of the
+//tree edges is the whole dendrogram: merge i joins the clusters at the ends of tree edge i
+//at height weights[i]; built in one union-find pass over the tree edges
+//- labels(threshold): the components at that distance, the clusters of computeMST(hull, alpha)
+//  when it stops at an edge longer than alpha; O(log n) to find the cut, O(n) to label
+//- cut(k): the k clusters of the dendrogram, O(n)
+//nodes of the dendrogram are the vertex ids of the store for the leaves and
+//store.vertexCount() + i for the node made by merge i, so a parent always has a larger id
+public class SingleLinkage {
+
+    private final MST.Tree tree;
+    private final EdgeStore store;
+    private final int leaves; //vertex ids, removed vertices included, they stay out of every cluster
+    private final int[] parent; //node made by the merge that took this node in, -1 for none
+    private final int[] left, right, size; //per merge
+
+    public SingleLinkage(DelaunayTriangulation.EdgePair triangulation) {
+        this(MST.computeTree(checked(triangulation)));
+    }
+
+    public SingleLinkage(MST.Tree tree) {
+        this.tree = tree;
+        this.store = tree.store;
+        this.leaves = store.vertexCount();
+        int merges = tree.size();
+        parent = new int[leaves + merges];
+        Arrays.fill(parent, -1);
+        left = new int[merges];
+        right = new int[merges];
+        size = new int[merges];
+
+        //top[r] is the newest node of the component with union-find root r
+        DSU dsu = new DSU(leaves);
+        int[] top = new int[leaves];
+        for (int v = 0; v < leaves; v++) top[v] = v;
+        for (int i = 0; i < merges; i++) {
+            int e = tree.edges[i];
+            int a = dsu.find(store.orig(e)), b = dsu.find(store.dest(e));
+            int node = leaves + i;
+            left[i] = top[a];
+            right[i] = top[b];
+            size[i] = size(top[a]) + size(top[b]);
+            parent[top[a]] = node;
+            parent[top[b]] = node;
+            dsu.union(a, b);
+            top[dsu.find(a)] = node;
+        }
+    }
+
+    private static DelaunayTriangulation.EdgePair checked(DelaunayTriangulation.EdgePair triangulation) {
+        if (triangulation == null) throw new IllegalArgumentException("Clustering needs at least two distinct points");
+        return triangulation;
+    }
+
+    //#region dendrogram
+    public MST.Tree tree() { return tree; }
+    public int vertexCount() { return store.liveVertexCount(); }
+    public int merges() { return left.length; }
+
+    public int mergeNode(int merge) { return leaves + merge; }
+    public boolean isLeaf(int node) { return node < leaves; }
+
+    //children of merge i, in the order of the ends of its tree edge
+    public int left(int merge) { return left[merge]; }
+    public int right(int merge) { return right[merge]; }
+    public double height(int merge) { return tree.weights[merge]; }
+    public DelaunayTriangulation.QuarterEdge edge(int merge) { return new DelaunayTriangulation.QuarterEdge(store, tree.edges[merge]); }
+
+    //points under a node
+    public int size(int node) {
+        return node < leaves ? 1 : size[node - leaves];
+    }
+
+    //node made by the merge that took this node in, -1 for the root and unmerged vertices
+    public int parent(int node) { return parent[node]; }
+    //#endregion
+
+    //#region clusters
+    //points closer than or exactly at the threshold along a chain end up together
+    public int clusterCount(double threshold) {
+        return vertexCount() - tree.countUpTo(threshold);
+    }
+
+    //cluster of every vertex id for the threshold, -1 for removed vertices
+    public int[] labels(double threshold) {
+        return labelsAfter(tree.countUpTo(threshold));
+    }
+
+    //cluster of every vertex id when the dendrogram is cut into k clusters, -1 for removed vertices
+    public int[] cut(int k) {
+        int fewest = vertexCount() - merges();
+        if (k < fewest || k > vertexCount()) {
+            throw new IllegalArgumentException("Can not cut " + vertexCount() + " points into " + k + " clusters, "
+                + fewest + " to " + vertexCount() + " are possible");
+        }
+        return labelsAfter(vertexCount() - k);
+    }
+
+    //clusters after the first merges, numbered 0, 1, .. in the order of their smallest vertex id
+    private int[] labelsAfter(int merges) {
+        int nodes = leaves + merges;
+        int[] mergeLabel = new int[merges];
+        int clusters = 0;
+        //parents before children, a node is the top of a cluster when no done merge took it in
+        for (int node = nodes - 1; node >= leaves; node--) {
+            int p = parent[node];
+            mergeLabel[node - leaves] = p < 0 || p >= nodes ? clusters++ : mergeLabel[p - leaves];
+        }
+
+        int[] labels = new int[leaves];
+        int[] renumber = new int[vertexCount()];
+        Arrays.fill(renumber, -1);
+        int next = 0;
+        for (int v = 0; v < leaves; v++) {
+            if (!store.isVertex(v)) {
+                labels[v] = -1;
+                continue;
+            }
+            int p = parent[v];
+            int label = p < 0 || p >= nodes ? clusters++ : mergeLabel[p - leaves];
+            if (renumber[label] < 0) renumber[label] = next++;
+            labels[v] = renumber[label];
+        }
+        return labels;
+    }
+    //#endregion
+}
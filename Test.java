@@ -57,32 +57,13 @@ public class Test {
     }
     //#region HELPERS
     public static List<DelaunayTriangulation.Point> readPointsFromFile(String filename) {
-        List<DelaunayTriangulation.Point> points = new ArrayList<>();
-        
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                
-                // Remove parentheses and split by comma
-                line = line.replace("(", "").replace(")", "");
-                String[] coords = line.split(",");
-                if (coords.length != 2) continue;
-                
-                try {
-                    double x = Double.parseDouble(coords[0].trim());
-                    double y = Double.parseDouble(coords[1].trim());
-                    points.add(new DelaunayTriangulation.Point(x, y));
-                } catch (NumberFormatException ex) {
-                    System.out.println("Skipping invalid line: " + line);
-                }
-            }
+        try {
+            return PointFileReader.toPoints(PointFileReader.readPacked(filename));
         } catch (IOException e) {
             e.printStackTrace();
         }
         
-        return points;
+        return new ArrayList<>();
     }
     public static void printPoints(List<DelaunayTriangulation.Point> points) {
         for (DelaunayTriangulation.Point p : points) {
@@ -0,0 +1,442 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+//finished triangulation on disk, so a restart can skip the sort and the divide and conquer
+//
+//  header (96 bytes): magic "DTSN", version, flags, reserved, input hash (long),
+//                     vertex count, edge count, tree edge count, ring bytes (longs),
+//                     duplicates, removed count, ldo and rdo as (vertex, ring position)
+//  x block, y block: vertex count doubles each
+//  rings: per vertex its degree and its neighbours in oNext order (varints), a neighbour
+//         with a larger id is (u - v - 1) << 1, one with a smaller id is (v - u - 1) << 1 | 1
+//         followed by the position of the edge in the ring of u, so every edge is made once
+//  removed: ids of removed vertices as deltas (varints)
+//  tree: (vertex, ring position) of every tree edge in Kruskal order (varints)
+//
+//loading rebuilds the quad-edge structure straight from the rings with makeEdge and splice,
+//without a single predicate; the view maps the coordinates and only decodes the rings
+public class TriangulationSnapshot {
+
+    public static final int MAGIC = 0x4e535444; //"DTSN" read as little endian int
+    public static final int VERSION = 1;
+    public static final int FLAG_TREE = 1;
+    public static final int HEADER_SIZE = 96;
+
+    private static final int BUFFER = 1 << 20;
+
+    public static class Loaded {
+        public final DelaunayTriangulation.EdgePair triangulation;
+        public final MST.Tree tree; //null if the snapshot has none
+
+        Loaded(DelaunayTriangulation.EdgePair triangulation, MST.Tree tree) {
+            this.triangulation = triangulation;
+            this.tree = tree;
+        }
+    }
+
+    //#region hash
+    //CRC32C of the content in the high half, the length in the low half
+    public static long hash(String filename) throws IOException {
+        CRC32C crc = new CRC32C();
+        long size;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            size = channel.size();
+            for (long at = 0; at < size; at += 1 << 30) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(1 << 30, size - at)));
+            }
+        }
+        return (crc.getValue() << 32) | (size & 0xffffffffL);
+    }
+    //#endregion
+
+    //#region writing
+    //tree may be null, inputHash is what hash gives for the input file
+    public static void write(String filename, DelaunayTriangulation.EdgePair triangulation, MST.Tree tree,
+                             long inputHash) throws IOException {
+        EdgeStore s = triangulation.ldo.store();
+        int n = s.vertexCount();
+
+        //position of every primal quarter edge in the ring of its origin
+        int[] first = new int[n];
+        Arrays.fill(first, -1);
+        long edges = 0;
+        for (int i = 0; i < s.edgeSlots(); i++) {
+            if (!s.isLive(i)) continue;
+            first[s.orig(i << 2)] = i << 2;
+            first[s.dest(i << 2)] = (i << 2) ^ 2;
+            edges++;
+        }
+        int[] position = new int[2 * s.edgeSlots()];
+        for (int v = 0; v < n; v++) {
+            int e = first[v];
+            if (e < 0) continue;
+            int k = 0;
+            do {
+                position[e >>> 1] = k++;
+                e = s.oNext(e);
+            } while (e != first[v]);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Out out = new Out(channel);
+            channel.position(HEADER_SIZE);
+            for (int v = 0; v < n; v++) out.putDouble(s.x(v));
+            for (int v = 0; v < n; v++) out.putDouble(s.y(v));
+            out.flush();
+            long ringStart = channel.position();
+
+            int removed = 0;
+            for (int v = 0; v < n; v++) {
+                if (!s.isVertex(v)) removed++;
+                int e = first[v];
+                if (e < 0) {
+                    out.varint(0);
+                    continue;
+                }
+                int degree = 0;
+                do {
+                    degree++;
+                    e = s.oNext(e);
+                } while (e != first[v]);
+                out.varint(degree);
+                do {
+                    int u = s.dest(e);
+                    if (u > v) {
+                        out.varint((long) (u - v - 1) << 1);
+                    } else {
+                        out.varint(((long) (v - u - 1) << 1) | 1);
+                        out.varint(position[(e ^ 2) >>> 1]);
+                    }
+                    e = s.oNext(e);
+                } while (e != first[v]);
+            }
+            out.flush();
+            long ringBytes = channel.position() - ringStart;
+
+            for (int v = 0, last = 0; v < n; v++) {
+                if (s.isVertex(v)) continue;
+                out.varint(v - last);
+                last = v;
+            }
+            if (tree != null) {
+                for (int e : tree.edges) {
+                    out.varint(s.orig(e));
+                    out.varint(position[e >>> 1]);
+                }
+            }
+            out.flush();
+
+            int ldo = triangulation.ldo.index(), rdo = triangulation.rdo.index();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, tree != null ? FLAG_TREE : 0);
+            header.putLong(16, inputHash);
+            header.putLong(24, n);
+            header.putLong(32, edges);
+            header.putLong(40, tree != null ? tree.size() : 0);
+            header.putLong(48, ringBytes);
+            header.putInt(56, s.duplicatesDropped());
+            header.putInt(60, removed);
+            header.putInt(64, s.orig(ldo));
+            header.putInt(68, position[ldo >>> 1]);
+            header.putInt(72, s.orig(rdo));
+            header.putInt(76, position[rdo >>> 1]);
+            for (long at = 0; header.hasRemaining(); ) at += channel.write(header, at);
+        }
+    }
+
+    //varints and doubles through one buffer
+    private static class Out {
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+        Out(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putDouble(double d) throws IOException {
+            if (buf.remaining() < 8) flush();
+            buf.putDouble(d);
+        }
+
+        void varint(long v) throws IOException {
+            if (buf.remaining() < 10) flush();
+            while ((v & ~0x7fL) != 0) {
+                buf.put((byte) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+    }
+    //#endregion
+
+    //#region loading
+    //the triangulation and the tree if the snapshot was made from an input with this hash, else null
+    public static Loaded load(String filename, long inputHash) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            Header h = header(channel, filename);
+            if (h.inputHash != inputHash) return null;
+            int n = h.vertices;
+
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            DoubleBuffer coordinates = map(channel, HEADER_SIZE, 16L * n).asDoubleBuffer();
+            coordinates.get(xs);
+            coordinates.get(ys);
+
+            EdgeStore s = new EdgeStore(xs, ys, null, EdgeStore.capacityFor(n));
+            s.setDuplicatesDropped(h.duplicates);
+            MappedByteBuffer rest = map(channel, h.ringStart, channel.size() - h.ringStart);
+
+            //ring[offset[v] + k] is the quarter edge out of v at position k
+            int[] offset = new int[n + 1];
+            int[] ring = new int[2 * h.edges];
+            long made = 0;
+            for (int v = 0; v < n; v++) {
+                long degree = varint(rest);
+                int at = offset[v];
+                //checked before the sum, which could wrap
+                if (degree < 0 || degree > ring.length - at) throw new IOException(filename + " has more edges than its header says");
+                offset[v + 1] = at + (int) degree;
+                for (int k = 0; k < degree; k++) {
+                    long token = varint(rest);
+                    int q;
+                    if ((token & 1) == 0) {
+                        int u = (int) (v + 1 + (token >>> 1));
+                        if (u <= v || u >= n) throw new IOException(filename + " has a bad ring at vertex " + v);
+                        if (made == h.edges) throw new IOException(filename + " has more edges than its header says");
+                        q = s.makeEdge(v, u);
+                        made++;
+                    } else {
+                        int u = (int) (v - 1 - (token >>> 1));
+                        int j = (int) varint(rest);
+                        if (u < 0 || u >= v || j < 0 || j >= offset[u + 1] - offset[u]) throw new IOException(filename + " has a bad ring at vertex " + v);
+                        q = ring[offset[u] + j] ^ 2;
+                        if (s.orig(q) != v) throw new IOException(filename + " has a bad ring at vertex " + v);
+                    }
+                    ring[at + k] = q;
+                    if (k > 0) s.splice(ring[at + k - 1], q);
+                }
+            }
+            if (made != h.edges) throw new IOException(filename + " has " + made + " edges, its header says " + h.edges);
+
+            for (int i = 0, v = 0; i < h.removed; i++) {
+                v += (int) varint(rest);
+                if (v < 0 || v >= n) throw new IOException(filename + " has a bad removed vertex " + v);
+                s.removeVertex(v);
+            }
+
+            MST.Tree tree = null;
+            if ((h.flags & FLAG_TREE) != 0) {
+                int[] edges = new int[h.treeEdges];
+                double[] weights = new double[h.treeEdges];
+                for (int i = 0; i < edges.length; i++) {
+                    int v = (int) varint(rest);
+                    int e = ringAt(ring, offset, v, varint(rest), filename);
+                    int u = s.dest(e);
+                    double dx = s.x(v) - s.x(u);
+                    double dy = s.y(v) - s.y(u);
+                    edges[i] = e;
+                    weights[i] = Math.sqrt(dx * dx + dy * dy); //same expression as MST.sortEdges
+                }
+                tree = new MST.Tree(s, edges, weights);
+            }
+
+            int ldo = ringAt(ring, offset, h.ldoVertex, h.ldoPosition, filename);
+            int rdo = ringAt(ring, offset, h.rdoVertex, h.rdoPosition, filename);
+            DelaunayTriangulation.EdgePair triangulation = new DelaunayTriangulation.EdgePair(
+                new DelaunayTriangulation.QuarterEdge(s, ldo), new DelaunayTriangulation.QuarterEdge(s, rdo));
+            return new Loaded(triangulation, tree);
+        }
+    }
+
+    //entry at a ring position read from the file (a quarter edge for load, a neighbour for view),
+    //checked like the ring tokens
+    private static int ringAt(int[] ring, int[] offset, int v, long position, String filename) throws IOException {
+        if (v < 0 || v >= offset.length - 1 || position < 0 || position >= offset[v + 1] - offset[v]) {
+            throw new IOException(filename + " has a bad ring position " + position + " at vertex " + v);
+        }
+        return ring[offset[v] + (int) position];
+    }
+
+    //the snapshot if it matches the input, otherwise the input is triangulated (and its tree
+    //computed if withTree) and a new snapshot replaces the old one
+    public static Loaded loadOrBuild(String input, String snapshot, boolean withTree) throws IOException {
+        long hash = hash(input);
+        if (Files.exists(Paths.get(snapshot))) {
+            try {
+                Loaded loaded = load(snapshot, hash);
+                if (loaded != null && (loaded.tree != null || !withTree)) return loaded;
+            } catch (IOException e) {
+                System.err.println("Ignoring snapshot " + snapshot + ": " + e.getMessage());
+            }
+        }
+
+        DelaunayTriangulation.EdgePair triangulation;
+        if (BinaryPointFile.isBinary(input)) {
+            triangulation = BinaryPointFile.read(input).triangulate();
+        } else {
+            List<DelaunayTriangulation.Point> points = PointFileReader.toPoints(PointFileReader.readPacked(input));
+            triangulation = DelaunayTriangulation.computeDelaunay(points);
+        }
+        if (triangulation == null) throw new IOException(input + " has fewer than two distinct points");
+        MST.Tree tree = withTree ? MST.computeTree(triangulation) : null;
+        write(snapshot, triangulation, tree, hash);
+        return new Loaded(triangulation, tree);
+    }
+    //#endregion
+
+    //#region view
+    //read-only adjacency without a quad-edge structure: the coordinates stay in the mapped
+    //file, the neighbours of v are neighbors[offsets[v] .. offsets[v + 1] - 1] in oNext order
+    public static class View {
+        private final DoubleBuffer xs, ys;
+        public final int[] offsets;
+        public final int[] neighbors;
+        public final int[] treeFrom, treeTo; //tree edges in Kruskal order, empty without a tree
+
+        View(DoubleBuffer xs, DoubleBuffer ys, int[] offsets, int[] neighbors, int[] treeFrom, int[] treeTo) {
+            this.xs = xs;
+            this.ys = ys;
+            this.offsets = offsets;
+            this.neighbors = neighbors;
+            this.treeFrom = treeFrom;
+            this.treeTo = treeTo;
+        }
+
+        public int vertexCount() { return offsets.length - 1; }
+        public int edgeCount() { return neighbors.length / 2; }
+        public int degree(int v) { return offsets[v + 1] - offsets[v]; }
+        public double x(int v) { return xs.get(v); }
+        public double y(int v) { return ys.get(v); }
+    }
+
+    //null if the snapshot was made from another input
+    public static View view(String filename, long inputHash) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            Header h = header(channel, filename);
+            if (h.inputHash != inputHash) return null;
+            int n = h.vertices;
+
+            //a mapping stays valid after its channel is closed
+            DoubleBuffer xs = map(channel, HEADER_SIZE, 8L * n).asDoubleBuffer();
+            DoubleBuffer ys = map(channel, HEADER_SIZE + 8L * n, 8L * n).asDoubleBuffer();
+            MappedByteBuffer rest = map(channel, h.ringStart, channel.size() - h.ringStart);
+
+            //same checks as load, without building the edges
+            int[] offsets = new int[n + 1];
+            int[] neighbors = new int[2 * h.edges];
+            long forward = 0;
+            for (int v = 0; v < n; v++) {
+                long degree = varint(rest);
+                int at = offsets[v];
+                if (degree < 0 || degree > neighbors.length - at) throw new IOException(filename + " has more edges than its header says");
+                offsets[v + 1] = at + (int) degree;
+                for (int k = 0; k < degree; k++) {
+                    long token = varint(rest);
+                    int u;
+                    if ((token & 1) == 0) {
+                        u = (int) (v + 1 + (token >>> 1));
+                        if (u <= v || u >= n) throw new IOException(filename + " has a bad ring at vertex " + v);
+                        forward++;
+                    } else {
+                        u = (int) (v - 1 - (token >>> 1));
+                        int j = (int) varint(rest);
+                        if (u < 0 || u >= v || j < 0 || j >= offsets[u + 1] - offsets[u] || neighbors[offsets[u] + j] != v) {
+                            throw new IOException(filename + " has a bad ring at vertex " + v);
+                        }
+                    }
+                    neighbors[at + k] = u;
+                }
+            }
+            if (forward != h.edges) throw new IOException(filename + " has " + forward + " edges, its header says " + h.edges);
+
+            for (int i = 0; i < h.removed; i++) varint(rest);
+            int[] treeFrom = new int[h.treeEdges];
+            int[] treeTo = new int[h.treeEdges];
+            for (int i = 0; i < h.treeEdges; i++) {
+                int v = (int) varint(rest);
+                treeFrom[i] = v;
+                treeTo[i] = ringAt(neighbors, offsets, v, varint(rest), filename);
+            }
+            return new View(xs, ys, offsets, neighbors, treeFrom, treeTo);
+        }
+    }
+    //#endregion
+
+    //#region reading helpers
+    private static class Header {
+        int flags, vertices, edges, treeEdges, duplicates, removed;
+        int ldoVertex, ldoPosition, rdoVertex, rdoPosition;
+        long inputHash, ringStart;
+    }
+
+    private static Header header(FileChannel channel, String filename) throws IOException {
+        if (channel.size() < HEADER_SIZE) throw new IOException(filename + " is too short for a snapshot header");
+        MappedByteBuffer b = map(channel, 0, HEADER_SIZE);
+        if (b.getInt(0) != MAGIC) throw new IOException(filename + " is not a triangulation snapshot");
+        int version = b.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+        Header h = new Header();
+        h.flags = b.getInt(8);
+        h.inputHash = b.getLong(16);
+        long vertices = b.getLong(24), edges = b.getLong(32), treeEdges = b.getLong(40);
+        //a planar triangulation has fewer than 3n edges, so edges also bounds the store
+        if (vertices < 0 || vertices > (Integer.MAX_VALUE - 8) / 6 || edges < 0 || edges > EdgeStore.capacityFor((int) vertices)
+                || treeEdges < 0 || treeEdges > vertices) {
+            throw new IOException(filename + " has bad counts");
+        }
+        h.vertices = (int) vertices;
+        h.edges = (int) edges;
+        h.treeEdges = (int) treeEdges;
+        h.ringStart = HEADER_SIZE + 16 * vertices;
+        long ringLength = b.getLong(48);
+        if (ringLength < 0 || channel.size() < h.ringStart + ringLength) throw new IOException(filename + " is truncated");
+        h.duplicates = b.getInt(56);
+        h.removed = b.getInt(60);
+        if (h.removed < 0 || h.removed > h.vertices) throw new IOException(filename + " has bad counts");
+        h.ldoVertex = b.getInt(64);
+        h.ldoPosition = b.getInt(68);
+        h.rdoVertex = b.getInt(72);
+        h.rdoPosition = b.getInt(76);
+        return h;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) throw new IOException("Snapshot section of " + length + " bytes is too large to map");
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    private static long varint(ByteBuffer buf) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buf.hasRemaining()) throw new IOException("Snapshot ends inside a varint");
+            byte b = buf.get();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IOException("Varint longer than 64 bits in snapshot");
+    }
+    //#endregion
+}
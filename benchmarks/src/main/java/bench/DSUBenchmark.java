@@ -0,0 +1,63 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//DSU.union over random pairs until everything is one set, then DSU.find on every element,
+//the access pattern Kruskal has on a triangulation with n vertices
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DSUBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    int n;
+
+    private int[] pairs;
+    private Object dsu;
+
+    @Setup
+    public void setup() {
+        //about 3n edges like a triangulation has
+        SplittableRandom random = new SplittableRandom(42);
+        pairs = new int[6 * n];
+        for (int i = 0; i < pairs.length; i++) pairs[i] = random.nextInt(n);
+    }
+
+    //a fresh structure for every call, union by size state does not carry over
+    @Setup(Level.Invocation)
+    public void fresh() throws Throwable {
+        dsu = Targets.newDSU(n);
+    }
+
+    @Benchmark
+    public int unionFind() throws Throwable {
+        Object d = dsu;
+        int[] p = pairs;
+        int merged = 0;
+        for (int i = 0; i < p.length; i += 2) {
+            if (Targets.union(d, p[i], p[i + 1])) merged++;
+        }
+        int roots = 0;
+        for (int v = 0; v < n; v++) {
+            if (Targets.find(d, v) == v) roots++;
+        }
+        return merged + roots;
+    }
+}
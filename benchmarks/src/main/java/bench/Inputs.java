@@ -0,0 +1,77 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+//point sets the benchmarks run on, as interleaved x, y pairs
+//fixed seeds so every fork and every run sees the same input
+public final class Inputs {
+
+    //uniform:    independent points in a square
+    //clustered:  gaussian blobs of very different sizes, long MST edges between them
+    //degenerate: integer lattice with repeated points, lots of collinear and cocircular
+    //            quadruples, so the exact predicate paths get exercised
+    public enum Distribution { uniform, clustered, degenerate }
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private Inputs() {}
+
+    static double[] generate(Distribution distribution, int n) {
+        SplittableRandom random = new SplittableRandom(SEED + distribution.ordinal());
+        double[] xy = new double[2 * n];
+        switch (distribution) {
+            case uniform:
+                for (int i = 0; i < 2 * n; i++) xy[i] = random.nextDouble() * 1e6;
+                break;
+            case clustered: {
+                int clusters = Math.max(1, (int) Math.sqrt(n) / 10);
+                double[] cx = new double[clusters], cy = new double[clusters], spread = new double[clusters];
+                for (int c = 0; c < clusters; c++) {
+                    cx[c] = random.nextDouble() * 1e6;
+                    cy[c] = random.nextDouble() * 1e6;
+                    spread[c] = Math.pow(10, 1 + 3 * random.nextDouble());
+                }
+                for (int i = 0; i < n; i++) {
+                    int c = random.nextInt(clusters);
+                    xy[2 * i] = cx[c] + random.nextGaussian() * spread[c];
+                    xy[2 * i + 1] = cy[c] + random.nextGaussian() * spread[c];
+                }
+                break;
+            }
+            case degenerate: {
+                int side = Math.max(2, (int) Math.sqrt(n * 0.9));
+                for (int i = 0; i < n; i++) {
+                    xy[2 * i] = random.nextInt(side);
+                    xy[2 * i + 1] = random.nextInt(side);
+                }
+                break;
+            }
+        }
+        return xy;
+    }
+
+    static List<Object> points(double[] xy) throws Throwable {
+        List<Object> points = new ArrayList<>(xy.length / 2);
+        for (int i = 0; i < xy.length; i += 2) points.add(Targets.point(xy[i], xy[i + 1]));
+        return points;
+    }
+
+    //same "(x,y)" per line text layout the EMST input files use
+    static Path writeTextFile(double[] xy) throws IOException {
+        Path file = Files.createTempFile("points", ".txt");
+        file.toFile().deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < xy.length; i += 2) {
+                out.write("(" + xy[i] + "," + xy[i + 1] + ")");
+                out.newLine();
+            }
+        }
+        return file;
+    }
+}
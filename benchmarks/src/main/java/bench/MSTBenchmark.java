@@ -0,0 +1,44 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//MST.computeMST on a triangulation built once per trial
+//alpha is infinite so the whole tree is built instead of stopping at the first long edge
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MSTBenchmark {
+
+    @Param({ "uniform", "clustered", "degenerate" })
+    Inputs.Distribution distribution;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    int n;
+
+    private Object hull;
+
+    @Setup
+    public void setup() throws Throwable {
+        hull = Targets.computeDelaunay(Inputs.points(Inputs.generate(distribution, n)));
+    }
+
+    @Benchmark
+    public Object computeMST() throws Throwable {
+        return Targets.computeMST(hull, Double.POSITIVE_INFINITY);
+    }
+}
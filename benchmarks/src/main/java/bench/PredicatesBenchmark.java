@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//the ccw and inCircle tests of the triangulation, which are Predicates.orient2d and
+//Predicates.inCircle with a sign check, over a fixed batch of point tuples
+//on the degenerate input most tuples are collinear or cocircular and take the exact path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicatesBenchmark {
+
+    private static final int BATCH = 1 << 12;
+
+    @Param({ "uniform", "clustered", "degenerate" })
+    Inputs.Distribution distribution;
+
+    private double[] xy;
+
+    @Setup
+    public void setup() {
+        //4 points per test
+        xy = Inputs.generate(distribution, 4 * BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void ccw(Blackhole bh) throws Throwable {
+        double[] p = xy;
+        for (int i = 0; i < p.length; i += 8) {
+            bh.consume(Targets.orient2d(p[i], p[i + 1], p[i + 2], p[i + 3], p[i + 4], p[i + 5]) > 0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void inCircle(Blackhole bh) throws Throwable {
+        double[] p = xy;
+        for (int i = 0; i < p.length; i += 8) {
+            bh.consume(Targets.inCircle(p[i], p[i + 1], p[i + 2], p[i + 3],
+                    p[i + 4], p[i + 5], p[i + 6], p[i + 7]) > 0);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+//EMST.readPointsFromFile on a text file written once per trial
+//the file stays in the page cache, so this measures parsing, not the disk
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ReadBenchmark {
+
+    @Param({ "uniform", "clustered", "degenerate" })
+    Inputs.Distribution distribution;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    int n;
+
+    private Path file;
+    private String filename;
+
+    @Setup
+    public void setup() throws Throwable {
+        file = Inputs.writeTextFile(Inputs.generate(distribution, n));
+        filename = file.toString();
+        //a file the reader skips would time an empty result
+        int read = Targets.readPointsFromFile(filename).size();
+        if (read != n) throw new IllegalStateException("Read back " + read + " of " + n + " points from " + filename);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<?> readPointsFromFile() throws Throwable {
+        return Targets.readPointsFromFile(filename);
+    }
+}
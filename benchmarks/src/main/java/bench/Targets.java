@@ -0,0 +1,119 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+//the triangulation classes live in the unnamed package, which JMH refuses to benchmark
+//and named packages cannot import, so the benchmarks reach them through method handles
+//the handles are static final, the JIT folds and inlines them like direct calls
+final class Targets {
+
+    private static final MethodHandle NEW_POINT;
+    private static final MethodHandle COMPUTE_DELAUNAY;
+    private static final MethodHandle INSERT_ALL;
+    private static final MethodHandle COMPUTE_MST;
+    private static final MethodHandle READ_POINTS;
+    private static final MethodHandle ORIENT2D;
+    private static final MethodHandle IN_CIRCLE;
+    private static final MethodHandle NEW_DSU;
+    private static final MethodHandle DSU_FIND;
+    private static final MethodHandle DSU_UNION;
+
+    static {
+        try {
+            Class<?> point = Class.forName("DelaunayTriangulation$Point");
+            Class<?> edgePair = Class.forName("DelaunayTriangulation$EdgePair");
+            Class<?> mstResult = Class.forName("MST$MSTResult");
+            Class<?> dsu = Class.forName("DSU");
+            MethodHandles.Lookup here = MethodHandles.lookup();
+
+            NEW_POINT = erase(here.findConstructor(point,
+                    MethodType.methodType(void.class, double.class, double.class)));
+            COMPUTE_DELAUNAY = erase(here.findStatic(Class.forName("DelaunayTriangulation"), "computeDelaunay",
+                    MethodType.methodType(edgePair, List.class)));
+            INSERT_ALL = erase(here.findStatic(Class.forName("DelaunayTriangulation"), "insertAll",
+                    MethodType.methodType(int[].class, edgePair, List.class)));
+            COMPUTE_MST = erase(here.findStatic(Class.forName("MST"), "computeMST",
+                    MethodType.methodType(mstResult, edgePair, double.class)));
+            READ_POINTS = here.findStatic(Class.forName("EMST"), "readPointsFromFile",
+                    MethodType.methodType(List.class, String.class));
+
+            Class<?> predicates = Class.forName("Predicates");
+            ORIENT2D = here.findStatic(predicates, "orient2d", MethodType.methodType(double.class,
+                    double.class, double.class, double.class, double.class, double.class, double.class));
+            IN_CIRCLE = here.findStatic(predicates, "inCircle", MethodType.methodType(double.class,
+                    double.class, double.class, double.class, double.class,
+                    double.class, double.class, double.class, double.class));
+
+            //DSU is package private, the classpath is one open module so a private lookup is allowed
+            MethodHandles.Lookup inDsu = MethodHandles.privateLookupIn(dsu, here);
+            NEW_DSU = erase(inDsu.findConstructor(dsu, MethodType.methodType(void.class, int.class)));
+            DSU_FIND = erase(inDsu.findVirtual(dsu, "find", MethodType.methodType(int.class, int.class)));
+            DSU_UNION = erase(inDsu.findVirtual(dsu, "union",
+                    MethodType.methodType(boolean.class, int.class, int.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Targets() {}
+
+    //unnamed package types become Object so the call sites can use invokeExact
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isCoreType(type.parameterType(i))) type = type.changeParameterType(i, Object.class);
+        }
+        if (isCoreType(type.returnType())) type = type.changeReturnType(Object.class);
+        return handle.asType(type);
+    }
+
+    private static boolean isCoreType(Class<?> c) {
+        return !c.isPrimitive() && c.getPackageName().isEmpty();
+    }
+
+    static Object point(double x, double y) throws Throwable {
+        return (Object) NEW_POINT.invokeExact(x, y);
+    }
+
+    //returns the EdgePair of the hull
+    static Object computeDelaunay(List<Object> points) throws Throwable {
+        return (Object) COMPUTE_DELAUNAY.invokeExact((List) points);
+    }
+
+    //adds the points to the triangulation, ids in list order
+    static int[] insertAll(Object hull, List<Object> points) throws Throwable {
+        return (int[]) INSERT_ALL.invokeExact(hull, (List) points);
+    }
+
+    static Object computeMST(Object hull, double alpha) throws Throwable {
+        return (Object) COMPUTE_MST.invokeExact(hull, alpha);
+    }
+
+    static List<?> readPointsFromFile(String filename) throws Throwable {
+        return (List<?>) READ_POINTS.invokeExact(filename);
+    }
+
+    static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) throws Throwable {
+        return (double) ORIENT2D.invokeExact(ax, ay, bx, by, cx, cy);
+    }
+
+    static double inCircle(double ax, double ay, double bx, double by,
+                           double cx, double cy, double dx, double dy) throws Throwable {
+        return (double) IN_CIRCLE.invokeExact(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+    static Object newDSU(int n) throws Throwable {
+        return (Object) NEW_DSU.invokeExact(n);
+    }
+
+    static int find(Object dsu, int p) throws Throwable {
+        return (int) DSU_FIND.invokeExact(dsu, p);
+    }
+
+    static boolean union(Object dsu, int a, int b) throws Throwable {
+        return (boolean) DSU_UNION.invokeExact(dsu, a, b);
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//DelaunayTriangulation.computeDelaunay, sort and dedup included, against an incremental
+//build that starts from three points and inserts the rest in BRIO order
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TriangulationBenchmark {
+
+    @Param({ "uniform", "clustered", "degenerate" })
+    Inputs.Distribution distribution;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    int n;
+
+    private List<Object> points;
+
+    @Setup
+    public void setup() throws Throwable {
+        points = Inputs.points(Inputs.generate(distribution, n));
+    }
+
+    @Benchmark
+    public Object computeDelaunay() throws Throwable {
+        return Targets.computeDelaunay(points);
+    }
+
+    @Benchmark
+    public Object insertAll() throws Throwable {
+        Object hull = Targets.computeDelaunay(points.subList(0, 3));
+        Targets.insertAll(hull, points.subList(3, points.size()));
+        return hull;
+    }
+}